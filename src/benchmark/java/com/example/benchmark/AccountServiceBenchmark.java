@@ -0,0 +1,99 @@
+package com.example.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.entity.Account;
+import com.example.repository.AccountRepository;
+import com.example.service.AccountService;
+
+/**
+ * AccountService and AccountRepository against a seeded database
+ * the number of accounts follows BenchmarkDatabase.accountCount(messageCount)
+ * accounts saved by the benchmarks are deleted before every iteration, so the
+ * table keeps its seeded size across iterations
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccountServiceBenchmark {
+    static final String SAVED_PREFIX = "benchsave";
+
+    @Param({ "10000" })
+    public int messageCount;
+
+    ConfigurableApplicationContext context;
+    AccountService accountService;
+    AccountRepository accountRepository;
+    int accountCount;
+    final AtomicInteger registered = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.start(false);
+        BenchmarkDatabase.seed(context, messageCount);
+        accountService = context.getBean(AccountService.class);
+        accountRepository = context.getBean(AccountRepository.class);
+        accountCount = BenchmarkDatabase.accountCount(messageCount);
+    }
+
+    @Setup(Level.Iteration)
+    public void deleteSaved() {
+        context.getBean(JdbcTemplate.class).update("delete from account where username like ?", SAVED_PREFIX + "%");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SpringApplication.exit(context);
+    }
+
+    int randomIndex() {
+        return ThreadLocalRandom.current().nextInt(accountCount);
+    }
+
+    @Benchmark
+    public Account findByUsername() {
+        return accountService.findByUsername(BenchmarkDatabase.username(randomIndex()));
+    }
+
+    @Benchmark
+    public Account findByAccountId() {
+        return accountService.findByAccountId(BenchmarkDatabase.SEED_ID_BASE + randomIndex());
+    }
+
+    @Benchmark
+    public Account save() {
+        return accountService.save(new Account(SAVED_PREFIX + registered.incrementAndGet(), "password"));
+    }
+
+    @Benchmark
+    public Account repositoryFindByUsername() {
+        return accountRepository.findByUsername(BenchmarkDatabase.username(randomIndex()));
+    }
+
+    @Benchmark
+    public Account repositoryFindByAccountId() {
+        return accountRepository.findByAccountId(BenchmarkDatabase.SEED_ID_BASE + randomIndex());
+    }
+}
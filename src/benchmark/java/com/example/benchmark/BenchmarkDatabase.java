@@ -0,0 +1,92 @@
+package com.example.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.SocialMediaApp;
+import com.example.service.AccountService;
+
+/**
+ * starts the application against its own in-memory H2 database and seeds it
+ * with a configurable number of accounts and messages
+ * seeded rows use ids starting at SEED_ID_BASE so they never collide with ids
+ * handed out by the application's own sequences
+ */
+public final class BenchmarkDatabase {
+    public static final int SEED_ID_BASE = 100_000_000;
+    public static final long SEED_EPOCH = 1669947792L;
+
+    private static final int BATCH_SIZE = 10_000;
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * starts the application. extraArgs are passed as additional command line
+     * arguments, e.g. "--server.port=0"
+     */
+    public static ConfigurableApplicationContext start(boolean web, String... extraArgs) {
+        List<String> args = new ArrayList<>();
+        args.add("--spring.datasource.url=jdbc:h2:mem:benchmark");
+        args.add("--spring.main.banner-mode=off");
+        args.add("--logging.level.root=warn");
+        if (!web) {
+            args.add("--spring.main.web-application-type=none");
+        }
+        args.addAll(List.of(extraArgs));
+        return SpringApplication.run(SocialMediaApp.class, args.toArray(new String[0]));
+    }
+
+    /**
+     * number of accounts seeded for messageCount messages. Every account posts
+     * roughly 100 messages
+     */
+    public static int accountCount(int messageCount) {
+        return Math.max(100, messageCount / 100);
+    }
+
+    public static String username(int index) {
+        return "benchuser" + index;
+    }
+
+    /**
+     * inserts accountCount(messageCount) accounts and messageCount messages. The
+     * message with index i is posted by account i % accountCount. The account
+     * existence filters are rebuilt afterwards
+     */
+    public static void seed(ConfigurableApplicationContext context, int messageCount) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        int accounts = accountCount(messageCount);
+        List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < accounts; i++) {
+            rows.add(new Object[] { SEED_ID_BASE + i, username(i), "password" });
+            if (rows.size() == BATCH_SIZE) {
+                jdbcTemplate.batchUpdate("insert into account (account_id, username, password) values (?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate("insert into account (account_id, username, password) values (?, ?, ?)", rows);
+            rows.clear();
+        }
+        // seeded accounts bypass AccountService, so its existence filters have not seen them yet
+        context.getBean(AccountService.class).rebuildExistenceFilters();
+        String insertMessage = "insert into message (message_id, posted_by, message_text, time_posted_epoch)"
+                + " values (?, ?, ?, ?)";
+        for (int i = 0; i < messageCount; i++) {
+            rows.add(new Object[] { SEED_ID_BASE + i, SEED_ID_BASE + (i % accounts), "benchmark message " + i,
+                    SEED_EPOCH + i });
+            if (rows.size() == BATCH_SIZE) {
+                jdbcTemplate.batchUpdate(insertMessage, rows);
+                rows.clear();
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(insertMessage, rows);
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package com.example.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * closed-loop HTTP load generator for the SocialMediaController endpoints
+ * starts the application on a random port against a seeded in-memory database,
+ * drives it from a fixed number of client threads with a weighted mix of
+ * operations and writes per-endpoint latency percentiles and throughput as JSON
+ *
+ * options, all optional:
+ *   -concurrency=32          client threads
+ *   -duration=30             measured seconds
+ *   -warmup=10               seconds run before measuring
+ *   -messages=10000          seeded messages, see BenchmarkDatabase
+ *   -mix=getMessage:30,...   operation weights, see DEFAULT_MIX
+ *   -admission=false         keep rate limits and admission control on; off by
+ *                            default since every client shares one address
+ *   -report=target/loadtest-report.json
+ * arguments starting with -- are passed to the application, e.g.
+ * --spring.datasource.hikari.maximum-pool-size=20
+ */
+public class LoadTest {
+    public static final String DEFAULT_MIX = "getMessage:30,userMessages:15,userTimeline:15,messagesPage:10,"
+            + "login:10,post:10,patch:5,delete:3,register:2";
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    final HttpClient webClient = HttpClient.newHttpClient();
+    final String baseUrl;
+    final int messageCount;
+    final int accountCount;
+    final AtomicInteger deleteCursor;
+    final AtomicInteger registerCursor = new AtomicInteger();
+    final Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+
+    LoadTest(String baseUrl, int messageCount) {
+        this.baseUrl = baseUrl;
+        this.messageCount = messageCount;
+        this.accountCount = BenchmarkDatabase.accountCount(messageCount);
+        this.deleteCursor = new AtomicInteger(messageCount);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new TreeMap<>();
+        List<String> appArgs = new ArrayList<>();
+        parseArgs(args, options, appArgs);
+        File report = new File(options.getOrDefault("report", "target/loadtest-report.json"));
+        writeReport(report, execute(options, appArgs));
+    }
+
+    /**
+     * splits args into harness options (-key=value) and application arguments
+     * (--key=value)
+     */
+    static void parseArgs(String[] args, Map<String, String> options, List<String> appArgs) {
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                appArgs.add(arg);
+            } else if (arg.startsWith("-") && arg.contains("=")) {
+                options.put(arg.substring(1, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            } else {
+                throw new IllegalArgumentException("unrecognized argument " + arg);
+            }
+        }
+    }
+
+    static void writeReport(File report, Map<String, Object> result) throws IOException {
+        report.getAbsoluteFile().getParentFile().mkdirs();
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(report, result);
+        System.out.println("report written to " + report.getAbsolutePath());
+    }
+
+    /**
+     * starts the application with appArgs, seeds it, runs the warmup and the
+     * measured phase and shuts it down again
+     * 
+     * @return the configuration and per-endpoint results of the run
+     */
+    static Map<String, Object> execute(Map<String, String> options, List<String> appArgs) throws Exception {
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "32"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        int messages = Integer.parseInt(options.getOrDefault("messages", "10000"));
+        String mix = options.getOrDefault("mix", DEFAULT_MIX);
+        boolean admission = Boolean.parseBoolean(options.getOrDefault("admission", "false"));
+        List<String> allAppArgs = new ArrayList<>();
+        allAppArgs.add("--server.port=0");
+        allAppArgs.add("--app.admission.enabled=" + admission);
+        allAppArgs.addAll(appArgs);
+
+        ConfigurableApplicationContext context = BenchmarkDatabase.start(true, allAppArgs.toArray(new String[0]));
+        try {
+            BenchmarkDatabase.seed(context, messages);
+            String port = context.getEnvironment().getProperty("local.server.port");
+            LoadTest loadTest = new LoadTest("http://localhost:" + port, messages);
+            loadTest.configureMix(mix);
+
+            loadTest.run(concurrency, warmup);
+            loadTest.reset();
+            long start = System.nanoTime();
+            loadTest.run(concurrency, duration);
+            double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            Map<String, Object> config = new LinkedHashMap<>();
+            config.put("concurrency", concurrency);
+            config.put("duration", duration);
+            config.put("warmup", warmup);
+            config.put("messages", messages);
+            config.put("mix", mix);
+            config.put("admission", admission);
+            config.put("applicationArgs", allAppArgs);
+            result.put("config", config);
+            result.put("endpoints", loadTest.summarize(elapsedSeconds));
+            loadTest.print(elapsedSeconds);
+            return result;
+        } finally {
+            SpringApplication.exit(context);
+        }
+    }
+
+    void configureMix(String mix) {
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            String name = parts[0];
+            int weight = Integer.parseInt(parts[1]);
+            if (weight > 0) {
+                endpoints.put(name, new Endpoint(name, weight, operation(name)));
+            }
+        }
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("mix selects no operation");
+        }
+    }
+
+    /**
+     * request factory for one operation name of the mix
+     */
+    Operation operation(String name) {
+        switch (name) {
+            case "register":
+                return () -> post("/register", "{\"username\":\"loadtest" + registerCursor.incrementAndGet()
+                        + "\",\"password\":\"password\"}");
+            case "login":
+                return () -> post("/login", "{\"username\":\"" + BenchmarkDatabase.username(randomAccount())
+                        + "\",\"password\":\"password\"}");
+            case "post":
+                return () -> post("/messages", "{\"postedBy\":" + (BenchmarkDatabase.SEED_ID_BASE + randomAccount())
+                        + ",\"messageText\":\"load test message\",\"timePostedEpoch\":"
+                        + System.currentTimeMillis() / 1000 + "}");
+            case "patch":
+                return () -> HttpRequest.newBuilder(URI.create(baseUrl + "/messages/" + randomMessageId()))
+                        .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\":\"patched\"}"))
+                        .header("Content-Type", "application/json")
+                        .build();
+            case "delete":
+                // deletes seeded messages from the top of the range so most deletes hit a row
+                return () -> HttpRequest.newBuilder(URI.create(baseUrl + "/messages/"
+                        + (BenchmarkDatabase.SEED_ID_BASE + Math.floorMod(deleteCursor.decrementAndGet(), messageCount))))
+                        .DELETE()
+                        .build();
+            case "getMessage":
+                return () -> get("/messages/" + randomMessageId());
+            case "messagesPage":
+                return () -> get("/messages?limit=100&after=" + (randomMessageId() - 1));
+            case "userMessages":
+                return () -> get("/accounts/" + (BenchmarkDatabase.SEED_ID_BASE + randomAccount()) + "/messages");
+            case "userTimeline":
+                return () -> get("/accounts/" + (BenchmarkDatabase.SEED_ID_BASE + randomAccount())
+                        + "/messages?limit=20");
+            default:
+                throw new IllegalArgumentException("unknown operation " + name);
+        }
+    }
+
+    int randomAccount() {
+        return ThreadLocalRandom.current().nextInt(accountCount);
+    }
+
+    int randomMessageId() {
+        return BenchmarkDatabase.SEED_ID_BASE + ThreadLocalRandom.current().nextInt(messageCount);
+    }
+
+    HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).build();
+    }
+
+    HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+    }
+
+    Endpoint pick() {
+        int total = 0;
+        for (Endpoint endpoint : endpoints.values()) {
+            total += endpoint.weight;
+        }
+        int roll = ThreadLocalRandom.current().nextInt(total);
+        for (Endpoint endpoint : endpoints.values()) {
+            roll -= endpoint.weight;
+            if (roll < 0) {
+                return endpoint;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    /**
+     * keeps concurrency clients busy for seconds
+     */
+    void run(int concurrency, int seconds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            clients.execute(() -> {
+                while (System.nanoTime() < deadline) {
+                    Endpoint endpoint = pick();
+                    HttpRequest request = endpoint.operation.request();
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = webClient.send(request, HttpResponse.BodyHandlers.discarding());
+                        endpoint.record(start, response.statusCode());
+                    } catch (IOException e) {
+                        endpoint.errors.increment();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            });
+        }
+        clients.shutdown();
+        clients.awaitTermination(seconds + 60L, TimeUnit.SECONDS);
+    }
+
+    void reset() {
+        for (Endpoint endpoint : endpoints.values()) {
+            endpoint.reset();
+        }
+    }
+
+    Map<String, Object> summarize(double elapsedSeconds) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        Histogram total = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        for (Endpoint endpoint : endpoints.values()) {
+            summary.put(endpoint.name, endpoint.summarize(endpoint.latencies, elapsedSeconds));
+            total.add(endpoint.latencies);
+        }
+        Endpoint all = new Endpoint("total", 0, null);
+        summary.put("total", all.summarize(total, elapsedSeconds));
+        return summary;
+    }
+
+    void print(double elapsedSeconds) {
+        System.out.printf("%-14s %10s %10s %10s %10s %10s %10s%n", "endpoint", "count", "req/s", "p50 us",
+                "p99 us", "p999 us", "max us");
+        for (Endpoint endpoint : endpoints.values()) {
+            Histogram h = endpoint.latencies;
+            System.out.printf("%-14s %10d %10.1f %10d %10d %10d %10d%n", endpoint.name, h.getTotalCount(),
+                    h.getTotalCount() / elapsedSeconds, h.getValueAtPercentile(50), h.getValueAtPercentile(99),
+                    h.getValueAtPercentile(99.9), h.getMaxValue());
+        }
+    }
+
+    @FunctionalInterface
+    interface Operation {
+        HttpRequest request();
+    }
+
+    static final class Endpoint {
+        final String name;
+        final int weight;
+        final Operation operation;
+        final ConcurrentHistogram latencies = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        final LongAdder errors = new LongAdder();
+
+        Endpoint(String name, int weight, Operation operation) {
+            this.name = name;
+            this.weight = weight;
+            this.operation = operation;
+        }
+
+        void record(long startNanos, int status) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+            latencies.recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+        }
+
+        void reset() {
+            latencies.reset();
+            statuses.clear();
+            errors.reset();
+        }
+
+        Map<String, Object> summarize(Histogram h, double elapsedSeconds) {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("count", h.getTotalCount());
+            summary.put("throughputPerSecond", h.getTotalCount() / elapsedSeconds);
+            summary.put("meanMicros", h.getMean());
+            summary.put("p50Micros", h.getValueAtPercentile(50));
+            summary.put("p90Micros", h.getValueAtPercentile(90));
+            summary.put("p99Micros", h.getValueAtPercentile(99));
+            summary.put("p999Micros", h.getValueAtPercentile(99.9));
+            summary.put("maxMicros", h.getMaxValue());
+            if (operation != null) {
+                Map<String, Long> byStatus = new TreeMap<>();
+                statuses.forEach((status, count) -> byStatus.put(String.valueOf(status), count.sum()));
+                summary.put("statuses", byStatus);
+                summary.put("errors", errors.sum());
+            }
+            return summary;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.entity.Message;
+import com.example.journal.MessageWriteBehind;
+import com.example.repository.MessageRepository;
+import com.example.service.MessageService;
+
+/**
+ * MessageService and MessageRepository against a seeded database
+ * run with -p messageCount=10000,100000,1000000,10000000 to cover larger tables
+ * messages saved by the benchmarks are deleted before every iteration, so the
+ * table keeps its seeded size across iterations
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageServiceBenchmark {
+    static final String SAVED_TEXT = "benchmark save";
+    /**
+     * largest table findAll reads into one list. Larger tables are read page by
+     * page, since a list of every message does not fit a benchmark heap
+     */
+    static final int FIND_ALL_MAX_ROWS = 100_000;
+
+    @Param({ "10000" })
+    public int messageCount;
+
+    ConfigurableApplicationContext context;
+    MessageService messageService;
+    MessageRepository messageRepository;
+    int accountCount;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.start(false);
+        BenchmarkDatabase.seed(context, messageCount);
+        messageService = context.getBean(MessageService.class);
+        messageRepository = context.getBean(MessageRepository.class);
+        accountCount = BenchmarkDatabase.accountCount(messageCount);
+    }
+
+    /**
+     * deletes the messages saved during the previous iteration and forgets them
+     * in the caches
+     */
+    @Setup(Level.Iteration)
+    public void deleteSaved() {
+        context.getBeanProvider(MessageWriteBehind.class).ifAvailable(MessageWriteBehind::awaitFlushed);
+        context.getBean(JdbcTemplate.class).update("delete from message where message_text = ?", SAVED_TEXT);
+        messageService.getMessageCache().clear();
+        messageService.getOffHeapStore().clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SpringApplication.exit(context);
+    }
+
+    /**
+     * a message saved right before each invocation, for deleteById to remove
+     */
+    @State(Scope.Thread)
+    public static class SavedMessage {
+        int messageId;
+
+        @Setup(Level.Invocation)
+        public void save(MessageServiceBenchmark benchmark) {
+            messageId = benchmark.messageService.save(benchmark.newMessage()).getMessageId();
+        }
+    }
+
+    Message newMessage() {
+        return new Message(randomAccountId(), SAVED_TEXT, BenchmarkDatabase.SEED_EPOCH);
+    }
+
+    int randomAccountId() {
+        return BenchmarkDatabase.SEED_ID_BASE + ThreadLocalRandom.current().nextInt(accountCount);
+    }
+
+    int randomMessageId() {
+        return BenchmarkDatabase.SEED_ID_BASE + ThreadLocalRandom.current().nextInt(messageCount);
+    }
+
+    @Benchmark
+    public void findAll(Blackhole blackhole) {
+        if (messageCount <= FIND_ALL_MAX_ROWS) {
+            blackhole.consume(messageService.findAll());
+            return;
+        }
+        List<Message> page = messageService.findAfter(Integer.MIN_VALUE, MessageService.MAX_PAGE_SIZE);
+        while (!page.isEmpty()) {
+            blackhole.consume(page);
+            page = messageService.findAfter(page.get(page.size() - 1).getMessageId(), MessageService.MAX_PAGE_SIZE);
+        }
+    }
+
+    @Benchmark
+    public void streamAll(Blackhole blackhole) {
+        messageService.streamAll(blackhole::consume);
+    }
+
+    @Benchmark
+    public List<Message> findByPostedBy() {
+        return messageService.findByPostedBy(randomAccountId());
+    }
+
+    @Benchmark
+    public Message findByMessageId() {
+        return messageService.findByMessageId(randomMessageId());
+    }
+
+    @Benchmark
+    public Message save() {
+        return messageService.save(newMessage());
+    }
+
+    @Benchmark
+    public int deleteById(SavedMessage saved) {
+        return messageService.deleteById(saved.messageId);
+    }
+
+    @Benchmark
+    public List<Message> repositoryFindByPostedBy() {
+        return messageRepository.findByPostedBy(randomAccountId());
+    }
+
+    @Benchmark
+    public Message repositoryFindByMessageId() {
+        return messageRepository.findByMessageId(randomMessageId());
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.entity.Message;
+import com.example.search.MessageSearchIndex;
+import com.example.service.MessageService;
+
+/**
+ * MessageSearchIndex against the naive alternative of reading every message
+ * and filtering on the client. Each seeded message contains its own index as a
+ * word, so every query matches exactly one message
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    @Param({ "10000" })
+    public int messageCount;
+
+    ConfigurableApplicationContext context;
+    MessageService messageService;
+    MessageSearchIndex messageSearchIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = BenchmarkDatabase.start(false);
+        BenchmarkDatabase.seed(context, messageCount);
+        messageService = context.getBean(MessageService.class);
+        messageSearchIndex = context.getBean(MessageSearchIndex.class);
+        // seeded rows bypass MessageService, so the index has not seen them yet
+        messageSearchIndex.rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SpringApplication.exit(context);
+    }
+
+    String randomWord() {
+        return String.valueOf(ThreadLocalRandom.current().nextInt(messageCount));
+    }
+
+    @Benchmark
+    public List<Message> search() throws IOException {
+        return messageSearchIndex.search(randomWord(), 0, 10);
+    }
+
+    /**
+     * reads the table page by page until 10 messages contain the word
+     */
+    @Benchmark
+    public List<Message> naiveScan() {
+        String word = randomWord();
+        List<Message> found = new ArrayList<>();
+        List<Message> page = messageService.findAfter(Integer.MIN_VALUE, MessageService.MAX_PAGE_SIZE);
+        while (!page.isEmpty()) {
+            for (Message message : page) {
+                if (List.of(message.getMessageText().split(" ")).contains(word) && found.add(message)
+                        && found.size() == 10) {
+                    return found;
+                }
+            }
+            page = messageService.findAfter(page.get(page.size() - 1).getMessageId(), MessageService.MAX_PAGE_SIZE);
+        }
+        return found;
+    }
+}
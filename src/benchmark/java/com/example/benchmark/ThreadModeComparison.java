@@ -0,0 +1,37 @@
+package com.example.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * runs LoadTest once with tomcat's platform thread pool and once with
+ * app.threads.virtual.enabled=true, same options for both, and writes both
+ * results into one report. Needs a Java 21 runtime:
+ *   mvn -Pbenchmark,java21 test-compile exec:exec -Dbenchmark.main=com.example.benchmark.ThreadModeComparison
+ * accepts the same arguments as LoadTest. The report defaults to
+ * target/thread-mode-report.json
+ */
+public class ThreadModeComparison {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new TreeMap<>();
+        List<String> appArgs = new ArrayList<>();
+        LoadTest.parseArgs(args, options, appArgs);
+        File report = new File(options.getOrDefault("report", "target/thread-mode-report.json"));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("platform", LoadTest.execute(options, withMode(appArgs, false)));
+        result.put("virtual", LoadTest.execute(options, withMode(appArgs, true)));
+        LoadTest.writeReport(report, result);
+    }
+
+    static List<String> withMode(List<String> appArgs, boolean virtual) {
+        List<String> args = new ArrayList<>(appArgs);
+        args.add("--app.threads.virtual.enabled=" + virtual);
+        return args;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import com.example.entity.Message;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * encoding and decoding a page of messages, as returned by GET /messages, in
+ * every wire format the application negotiates, with the application's own
+ * mappers. The payload size of each format is printed once per trial
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+
+    @Param({ "json", "smile", "cbor" })
+    public String format;
+
+    @Param({ "100" })
+    public int pageSize;
+
+    ConfigurableApplicationContext context;
+    ObjectWriter writer;
+    ObjectReader reader;
+    List<Message> page;
+    byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = BenchmarkDatabase.start(false);
+        ObjectMapper objectMapper;
+        if ("smile".equals(format)) {
+            objectMapper = context.getBean(MappingJackson2SmileHttpMessageConverter.class).getObjectMapper();
+        } else if ("cbor".equals(format)) {
+            objectMapper = context.getBean(MappingJackson2CborHttpMessageConverter.class).getObjectMapper();
+        } else {
+            objectMapper = context.getBean(ObjectMapper.class);
+        }
+        writer = objectMapper.writerFor(new TypeReference<List<Message>>() {
+        });
+        reader = objectMapper.readerFor(new TypeReference<List<Message>>() {
+        });
+        page = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            page.add(new Message(BenchmarkDatabase.SEED_ID_BASE + i, BenchmarkDatabase.SEED_ID_BASE + i % 100,
+                    "benchmark message number " + i + " with some ordinary text", BenchmarkDatabase.SEED_EPOCH + i));
+        }
+        payload = writer.writeValueAsBytes(page);
+        System.out.printf("%n%s payload of %d messages: %d bytes%n", format, pageSize, payload.length);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SpringApplication.exit(context);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return writer.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public List<Message> decode() throws IOException {
+        return reader.readValue(payload);
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.exception.TooManyRequestsException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * decides whether a write request is handled or rejected with status 429
+ * every client address and every posting account has its own token bucket
+ * (see GcraRateLimiter). On top of that at most app.admission.max-concurrency
+ * writes run at once. While the mean time to acquire a database connection,
+ * sampled from hikari's hikaricp.connections.acquire timer over the last
+ * app.admission.pool-wait-window-ms, is above app.admission.pool-wait-threshold-ms,
+ * the limit drops to app.admission.congested-concurrency so queued writes stop
+ * piling onto a saturated pool
+ * rejections are counted as admission.rejected tagged with reason (client,
+ * account, concurrency). admission.writes.active and admission.congested
+ * show the current state
+ * everything is skipped when app.admission.enabled is false
+ */
+@Component
+public class AdmissionControl {
+    private static final String ACQUIRE_TIMER = "hikaricp.connections.acquire";
+
+    final boolean enabled;
+    final GcraRateLimiter clientLimiter;
+    final GcraRateLimiter accountLimiter;
+    final int maxConcurrency;
+    final int congestedConcurrency;
+    final long poolWaitThresholdNanos;
+    final long poolWaitWindowNanos;
+    final AtomicInteger activeWrites = new AtomicInteger();
+    final AtomicReference<PoolWaitSample> poolWait;
+    final MeterRegistry meterRegistry;
+    final Counter clientRejections;
+    final Counter accountRejections;
+    final Counter concurrencyRejections;
+
+    @Autowired
+    public AdmissionControl(MeterRegistry meterRegistry,
+            @Value("${app.admission.enabled}") boolean enabled,
+            @Value("${app.admission.client.rate-per-second}") double clientRate,
+            @Value("${app.admission.client.burst}") int clientBurst,
+            @Value("${app.admission.account.rate-per-second}") double accountRate,
+            @Value("${app.admission.account.burst}") int accountBurst,
+            @Value("${app.admission.max-tracked-keys}") int maxTrackedKeys,
+            @Value("${app.admission.max-concurrency}") int maxConcurrency,
+            @Value("${app.admission.congested-concurrency}") int congestedConcurrency,
+            @Value("${app.admission.pool-wait-threshold-ms}") long poolWaitThresholdMillis,
+            @Value("${app.admission.pool-wait-window-ms}") long poolWaitWindowMillis) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.clientLimiter = new GcraRateLimiter(clientRate, clientBurst, maxTrackedKeys);
+        this.accountLimiter = new GcraRateLimiter(accountRate, accountBurst, maxTrackedKeys);
+        this.maxConcurrency = maxConcurrency;
+        this.congestedConcurrency = congestedConcurrency;
+        this.poolWaitThresholdNanos = TimeUnit.MILLISECONDS.toNanos(poolWaitThresholdMillis);
+        this.poolWaitWindowNanos = TimeUnit.MILLISECONDS.toNanos(poolWaitWindowMillis);
+        this.poolWait = new AtomicReference<>(new PoolWaitSample(System.nanoTime(), 0, 0, false));
+        this.clientRejections = rejections("client");
+        this.accountRejections = rejections("account");
+        this.concurrencyRejections = rejections("concurrency");
+        Gauge.builder("admission.writes.active", activeWrites, AtomicInteger::get)
+                .description("write requests currently admitted")
+                .register(meterRegistry);
+        Gauge.builder("admission.congested", this, admission -> admission.poolWait.get().congested ? 1 : 0)
+                .description("1 while connection pool wait is above the threshold and the lower limit applies")
+                .register(meterRegistry);
+    }
+
+    /**
+     * admits a write request from clientAddress. Every successful call must be
+     * paired with a call to release
+     * 
+     * @throws TooManyRequestsException when the client is over its rate or the
+     *                                  concurrency limit is reached
+     */
+    public void admit(String clientAddress) throws TooManyRequestsException {
+        if (!enabled) {
+            return;
+        }
+        if (!clientLimiter.tryAcquire(clientAddress, 1)) {
+            clientRejections.increment();
+            throw new TooManyRequestsException();
+        }
+        int limit = isCongested() ? congestedConcurrency : maxConcurrency;
+        if (activeWrites.incrementAndGet() > limit) {
+            activeWrites.decrementAndGet();
+            concurrencyRejections.increment();
+            throw new TooManyRequestsException();
+        }
+    }
+
+    public void release() {
+        if (enabled) {
+            activeWrites.decrementAndGet();
+        }
+    }
+
+    /**
+     * takes one permit from the bucket of accountId
+     * 
+     * @return false when accountId is over its rate
+     */
+    public boolean tryAcquireAccount(int accountId) {
+        return tryAcquireAccountUpTo(accountId, 1) == 1;
+    }
+
+    /**
+     * takes as many of permits from the bucket of accountId as it has left
+     * 
+     * @return the number of permits taken. Less than permits when accountId is
+     *         over its rate
+     */
+    public int tryAcquireAccountUpTo(int accountId, int permits) {
+        if (!enabled) {
+            return permits;
+        }
+        int granted = accountLimiter.tryAcquireUpTo(accountId, permits);
+        if (granted < permits) {
+            accountRejections.increment();
+        }
+        return granted;
+    }
+
+    /**
+     * @throws TooManyRequestsException when accountId is over its rate
+     */
+    public void admitAccount(int accountId) throws TooManyRequestsException {
+        if (!tryAcquireAccount(accountId)) {
+            throw new TooManyRequestsException();
+        }
+    }
+
+    /**
+     * whether the mean connection acquire time over the last window is above
+     * the threshold. The answer is recomputed at most once per window, by
+     * whichever caller finds the previous sample expired
+     */
+    boolean isCongested() {
+        PoolWaitSample last = poolWait.get();
+        long now = System.nanoTime();
+        if (now - last.sampledAt < poolWaitWindowNanos) {
+            return last.congested;
+        }
+        Timer acquire = meterRegistry.find(ACQUIRE_TIMER).timer();
+        if (acquire == null) {
+            return false;
+        }
+        long count = acquire.count();
+        double totalNanos = acquire.totalTime(TimeUnit.NANOSECONDS);
+        boolean congested = count > last.count
+                && (totalNanos - last.totalNanos) / (count - last.count) > poolWaitThresholdNanos;
+        poolWait.compareAndSet(last, new PoolWaitSample(now, count, totalNanos, congested));
+        return congested;
+    }
+
+    private Counter rejections(String reason) {
+        return Counter.builder("admission.rejected").tag("reason", reason)
+                .description("write requests rejected with status 429")
+                .register(meterRegistry);
+    }
+
+    static final class PoolWaitSample {
+        final long sampledAt;
+        final long count;
+        final double totalNanos;
+        final boolean congested;
+
+        PoolWaitSample(long sampledAt, long count, double totalNanos, boolean congested) {
+            this.sampledAt = sampledAt;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.congested = congested;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.admission;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * token bucket per key, implemented with the generic cell rate algorithm.
+ * Instead of a token count every key holds a single theoretical arrival time
+ * (TAT): the instant its bucket would be full again. A request for n permits
+ * moves the TAT n emission intervals further into the future and is allowed
+ * when the TAT stays within burst intervals of now. The TAT is advanced with
+ * compare-and-set, so acquiring never locks
+ * keys whose TAT has passed are indistinguishable from new keys and are swept
+ * once more than maxKeys are tracked
+ */
+public class GcraRateLimiter {
+    private static final long SWEEP_INTERVAL_NANOS = 1_000_000_000L;
+
+    private final long emissionIntervalNanos;
+    private final long toleranceNanos;
+    private final int maxKeys;
+    private final ConcurrentHashMap<Object, AtomicLong> arrivalTimes = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweep = new AtomicLong(System.nanoTime());
+
+    /**
+     * @param ratePerSecond sustained permits per second and key
+     * @param burst         permits a key may take at once after being idle
+     * @param maxKeys       number of tracked keys above which idle keys are swept
+     */
+    public GcraRateLimiter(double ratePerSecond, int burst, int maxKeys) {
+        if (!(ratePerSecond > 0) || burst < 1) {
+            throw new IllegalArgumentException("ratePerSecond and burst must be positive");
+        }
+        this.emissionIntervalNanos = Math.max(1, (long) (1_000_000_000L / ratePerSecond));
+        this.toleranceNanos = emissionIntervalNanos * burst;
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * takes permits from the bucket of key
+     * 
+     * @return false, leaving the bucket unchanged, when key has not got that many
+     *         permits left
+     */
+    public boolean tryAcquire(Object key, int permits) {
+        long now = System.nanoTime();
+        AtomicLong arrivalTime = arrivalTimes.get(key);
+        if (arrivalTime == null) {
+            sweepIfFull(now);
+            arrivalTime = arrivalTimes.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        long increment = emissionIntervalNanos * permits;
+        while (true) {
+            long current = arrivalTime.get();
+            long next = (current - now > 0 ? current : now) + increment;
+            if (next - now > toleranceNanos) {
+                return false;
+            }
+            if (arrivalTime.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * takes as many of permits from the bucket of key as it has left
+     * 
+     * @return the number of permits taken, 0 when key is over its rate
+     */
+    public int tryAcquireUpTo(Object key, int permits) {
+        long now = System.nanoTime();
+        AtomicLong arrivalTime = arrivalTimes.get(key);
+        if (arrivalTime == null) {
+            sweepIfFull(now);
+            arrivalTime = arrivalTimes.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        while (true) {
+            long current = arrivalTime.get();
+            long base = current - now > 0 ? current : now;
+            long available = (toleranceNanos - (base - now)) / emissionIntervalNanos;
+            int granted = (int) Math.min(permits, available);
+            if (granted <= 0) {
+                return 0;
+            }
+            if (arrivalTime.compareAndSet(current, base + emissionIntervalNanos * granted)) {
+                return granted;
+            }
+        }
+    }
+
+    public int size() {
+        return arrivalTimes.size();
+    }
+
+    private void sweepIfFull(long now) {
+        long sweepAt = nextSweep.get();
+        if (arrivalTimes.size() <= maxKeys || now - sweepAt < 0
+                || !nextSweep.compareAndSet(sweepAt, now + SWEEP_INTERVAL_NANOS)) {
+            return;
+        }
+        arrivalTimes.values().removeIf(arrivalTime -> arrivalTime.get() - now <= 0);
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * set membership filter with no false negatives. mightContain returning false
+ * means the key was never put; true means it probably was, wrong with roughly
+ * the configured false positive probability while no more than
+ * expectedInsertions keys have been put
+ * keys are hashed to 64 bits and split into two 32 bit halves that generate
+ * the bit positions (Kirsch-Mitzenmacher double hashing). Bits are only ever
+ * set, so put and mightContain are lock-free and safe to call concurrently
+ * lookups are counted by result. Callers that go on to check a positive
+ * against the source of truth report the misses with recordFalsePositive
+ * rebuild refills the filter off to the side and swaps the new bits in with a
+ * single write, lookups never see a partly filled filter
+ */
+public class BloomFilter {
+
+    private volatile AtomicLongArray bits;
+    // receives every put while a rebuild is filling it
+    private volatile AtomicLongArray staging;
+    private final long bitCount;
+    private final int hashCount;
+
+    private final LongAdder insertions = new LongAdder();
+    private final LongAdder positives = new LongAdder();
+    private final LongAdder negatives = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    public BloomFilter(long expectedInsertions, double falsePositiveProbability) {
+        if (expectedInsertions < 1) {
+            throw new IllegalArgumentException("expectedInsertions must be positive");
+        }
+        if (!(falsePositiveProbability > 0 && falsePositiveProbability < 1)) {
+            throw new IllegalArgumentException("falsePositiveProbability must be between 0 and 1");
+        }
+        long optimalBits = (long) Math.ceil(
+                -expectedInsertions * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, (optimalBits + 63) / 64);
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+    }
+
+    /**
+     * a filter of the same size and hashing as filter over bits, for rebuild
+     */
+    private BloomFilter(BloomFilter filter, AtomicLongArray bits) {
+        this.bits = bits;
+        this.bitCount = filter.bitCount;
+        this.hashCount = filter.hashCount;
+    }
+
+    public void put(String key) {
+        put(hash(key));
+    }
+
+    public void put(int key) {
+        put(mix(key));
+    }
+
+    public boolean mightContain(String key) {
+        return count(mightContain(hash(key)));
+    }
+
+    public boolean mightContain(int key) {
+        return count(mightContain(mix(key)));
+    }
+
+    /**
+     * records that a positive answer of mightContain was not confirmed by the
+     * source of truth
+     */
+    public void recordFalsePositive() {
+        falsePositives.increment();
+    }
+
+    /**
+     * replaces the keys of the filter with those filler puts. filler fills a
+     * new set of bits while lookups keep answering from the current one, keys
+     * put concurrently go to both. Rebuilds are serialized
+     */
+    public synchronized void rebuild(Consumer<BloomFilter> filler) {
+        AtomicLongArray rebuilt = new AtomicLongArray(bits.length());
+        BloomFilter target = new BloomFilter(this, rebuilt);
+        staging = rebuilt;
+        try {
+            filler.accept(target);
+            bits = rebuilt;
+        } finally {
+            staging = null;
+        }
+        insertions.reset();
+        insertions.add(target.insertions.sum());
+    }
+
+    /**
+     * false positive probability for the number of keys put so far
+     */
+    public double getExpectedFalsePositiveProbability() {
+        return Math.pow(1 - Math.exp(-hashCount * insertions.doubleValue() / bitCount), hashCount);
+    }
+
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    public long getInsertionCount() {
+        return insertions.sum();
+    }
+
+    public long getPositiveCount() {
+        return positives.sum();
+    }
+
+    public long getNegativeCount() {
+        return negatives.sum();
+    }
+
+    public long getFalsePositiveCount() {
+        return falsePositives.sum();
+    }
+
+    /**
+     * sets the bits of hash in the live bits and in those being rebuilt. When a
+     * rebuild swaps the bits in between, they are set again in the new ones
+     */
+    private void put(long hash) {
+        AtomicLongArray target = bits;
+        set(target, hash);
+        AtomicLongArray rebuilt = staging;
+        if (rebuilt != null && rebuilt != target) {
+            set(rebuilt, hash);
+        }
+        if (bits != target && bits != rebuilt) {
+            set(bits, hash);
+        }
+        insertions.increment();
+    }
+
+    private void set(AtomicLongArray target, long hash) {
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long index = index(hash1 + i * hash2);
+            long mask = 1L << index;
+            int word = (int) (index >>> 6);
+            if ((target.get(word) & mask) == 0) {
+                target.getAndAccumulate(word, mask, (current, bit) -> current | bit);
+            }
+        }
+    }
+
+    private boolean mightContain(long hash) {
+        AtomicLongArray current = bits;
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long index = index(hash1 + i * hash2);
+            if ((current.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean count(boolean positive) {
+        (positive ? positives : negatives).increment();
+        return positive;
+    }
+
+    private long index(int combinedHash) {
+        return (combinedHash & 0xffffffffL) % bitCount;
+    }
+
+    private static long hash(String key) {
+        long hash = 1125899906842597L;
+        for (int i = 0; i < key.length(); i++) {
+            hash = 31 * hash + key.charAt(i);
+        }
+        return mix(hash);
+    }
+
+    /**
+     * murmur3 64 bit finalizer, spreads every input bit over the whole result
+     */
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+}
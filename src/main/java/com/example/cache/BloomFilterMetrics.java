@@ -0,0 +1,47 @@
+package com.example.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * publishes the counters of a BloomFilter tagged with the filter name.
+ * bloom.filter.checks by result (positive, negative), bloom.filter.false.positives,
+ * bloom.filter.size and bloom.filter.expected.fpp, the false positive
+ * probability for the current number of keys
+ */
+public class BloomFilterMetrics implements MeterBinder {
+
+    private final BloomFilter filter;
+    private final String name;
+
+    public BloomFilterMetrics(BloomFilter filter, String name) {
+        this.filter = filter;
+        this.name = name;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("bloom.filter.checks", filter, BloomFilter::getPositiveCount)
+                .tag("filter", name).tag("result", "positive")
+                .description("lookups the filter could not rule out")
+                .register(registry);
+        FunctionCounter.builder("bloom.filter.checks", filter, BloomFilter::getNegativeCount)
+                .tag("filter", name).tag("result", "negative")
+                .description("lookups answered as definitely absent")
+                .register(registry);
+        FunctionCounter.builder("bloom.filter.false.positives", filter, BloomFilter::getFalsePositiveCount)
+                .tag("filter", name)
+                .description("positive lookups that the source of truth did not confirm")
+                .register(registry);
+        Gauge.builder("bloom.filter.size", filter, BloomFilter::getInsertionCount)
+                .tag("filter", name)
+                .description("the number of keys put since the filter was last rebuilt")
+                .register(registry);
+        Gauge.builder("bloom.filter.expected.fpp", filter, BloomFilter::getExpectedFalsePositiveProbability)
+                .tag("filter", name)
+                .description("false positive probability for the current number of keys")
+                .register(registry);
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.cache;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * in-process cache bounded by entry count and time to live
+ * entries are kept in access order and the least recently used entry is
+ * evicted once maxSize is exceeded. Expired entries are dropped when they are
+ * read. All operations are synchronized on the cache
+ * invalidate leaves a tombstone stamped with a version that every
+ * invalidation increments. A reader that takes stamp() before loading a value
+ * and caches it with putIfNotInvalidatedSince cannot put back a value loaded
+ * before a concurrent invalidation. Tombstones are evicted like entries, a
+ * load older than an evicted tombstone is not cached
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class BoundedCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private long version;
+    // version of the newest tombstone no longer in entries
+    private long forgottenVersion;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public BoundedCache(int maxSize, Duration ttl) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > BoundedCache.this.maxSize) {
+                    if (eldest.getValue().value == null) {
+                        forgottenVersion = Math.max(forgottenVersion, eldest.getValue().version);
+                    } else {
+                        evictions.increment();
+                    }
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return the cached value, or null if key is absent or expired
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null || entry.value == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAt - System.nanoTime() <= 0) {
+            entries.remove(key);
+            evictions.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    /**
+     * caches value unconditionally, for values that are known to be current,
+     * e.g. just written
+     */
+    public synchronized void put(K key, V value) {
+        entries.put(key, new Entry<>(value, System.nanoTime() + ttlNanos, 0));
+    }
+
+    /**
+     * @return the version to pass to putIfNotInvalidatedSince for a value about
+     *         to be loaded
+     */
+    public synchronized long stamp() {
+        return version;
+    }
+
+    /**
+     * caches value, loaded after stamp was taken, unless key was invalidated
+     * since
+     *
+     * @return false if value was not cached
+     */
+    public synchronized boolean putIfNotInvalidatedSince(K key, V value, long stamp) {
+        Entry<V> entry = entries.get(key);
+        if (stamp < forgottenVersion || entry != null && entry.value == null && entry.version > stamp) {
+            return false;
+        }
+        put(key, value);
+        return true;
+    }
+
+    /**
+     * get that is not counted as a hit or miss, for lookups made on behalf of
+     * writers rather than readers
+     *
+     * @return the cached value, or null if key is absent or expired
+     */
+    public synchronized V peek(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null || entry.value == null || entry.expiresAt - System.nanoTime() <= 0) {
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * caches value unless key already has a live value
+     *
+     * @return the live value already cached, or null if value was cached
+     */
+    public synchronized V putIfAbsent(K key, V value) {
+        V existing = peek(key);
+        if (existing == null) {
+            put(key, value);
+        }
+        return existing;
+    }
+
+    public synchronized void invalidate(K key) {
+        entries.put(key, new Entry<>(null, System.nanoTime() + ttlNanos, ++version));
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        forgottenVersion = ++version;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * a cached value, or a tombstone with a null value and the version of its
+     * invalidation
+     */
+    private static final class Entry<V> {
+        final V value;
+        final long expiresAt;
+        final long version;
+
+        Entry(V value, long expiresAt, long version) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.version = version;
+        }
+    }
+}
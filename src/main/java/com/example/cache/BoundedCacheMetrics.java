@@ -0,0 +1,41 @@
+package com.example.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * publishes the counters of a BoundedCache under micrometer's cache meter names
+ * (cache.gets, cache.evictions, cache.size) tagged with the cache name
+ */
+public class BoundedCacheMetrics implements MeterBinder {
+
+    private final BoundedCache<?, ?> cache;
+    private final String name;
+
+    public BoundedCacheMetrics(BoundedCache<?, ?> cache, String name) {
+        this.cache = cache;
+        this.name = name;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", cache, BoundedCache::getHitCount)
+                .tag("cache", name).tag("result", "hit")
+                .description("the number of times cache lookup methods have returned a cached value")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", cache, BoundedCache::getMissCount)
+                .tag("cache", name).tag("result", "miss")
+                .description("the number of times cache lookup methods have not returned a value")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", cache, BoundedCache::getEvictionCount)
+                .tag("cache", name)
+                .description("cache evictions")
+                .register(registry);
+        Gauge.builder("cache.size", cache, BoundedCache::size)
+                .tag("cache", name)
+                .description("the number of entries in this cache")
+                .register(registry);
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.example.entity.Message;
+
+/**
+ * message cache that keeps its messages outside the java heap, in slabs of
+ * direct ByteBuffers. A message is stored as one record: messageId, postedBy
+ * and timePostedEpoch as primitives followed by the UTF-8 bytes of
+ * messageText. Message objects only exist for the duration of a lookup
+ * records are appended to the slabs as to a circular log. When the log wraps,
+ * the oldest slab is reclaimed whole and its records are forgotten, so
+ * eviction is first in, first out
+ * records are found through a direct-mapped index of two primitive arrays
+ * sized once at construction: messageId & (indexSize - 1) picks the only slot
+ * a message can be in, and a newer message mapping to the same slot replaces
+ * it. Sequential ids never collide within indexSize of each other. The heap
+ * footprint is that index, 12 bytes per slot, whatever the number of messages
+ * invalidate leaves a tombstone in the slot, its position being the negated
+ * version that every invalidation increments. Like BoundedCache, a value
+ * loaded after stamp() is only stored by putIfNotInvalidatedSince if no
+ * invalidation of its id happened since, or could have been forgotten
+ * all operations are synchronized on the store
+ */
+public class OffHeapMessageStore {
+    public static final int SLAB_SIZE = 1 << 20;
+
+    // messageId, postedBy, timePostedEpoch, null flags, text length
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 1 + 4;
+    private static final byte NULL_POSTED_BY = 1;
+    private static final byte NULL_TIME_POSTED_EPOCH = 2;
+    private static final byte NULL_MESSAGE_TEXT = 4;
+    private static final int EMPTY = 0;
+
+    private final ByteBuffer[] slabs;
+    private final int[] indexKeys;
+    private final long[] indexPositions;
+    private final int indexMask;
+    // logical position of the next record, only ever grows
+    private long writePosition;
+    private long version;
+    // version of the newest tombstone no longer in the index
+    private long forgottenVersion;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public OffHeapMessageStore(int slabCount, int indexSize) {
+        if (slabCount < 2) {
+            throw new IllegalArgumentException("slabCount must be at least 2");
+        }
+        if (indexSize < 1 || indexSize > 1 << 30) {
+            throw new IllegalArgumentException("indexSize must be between 1 and 2^30");
+        }
+        this.slabs = new ByteBuffer[slabCount];
+        for (int i = 0; i < slabCount; i++) {
+            slabs[i] = ByteBuffer.allocateDirect(SLAB_SIZE);
+        }
+        int size = Integer.highestOneBit(indexSize);
+        size = size < indexSize ? size << 1 : size;
+        this.indexKeys = new int[size];
+        this.indexPositions = new long[size];
+        this.indexMask = size - 1;
+    }
+
+    /**
+     * stores a copy of message, replacing any previous version. Messages without
+     * messageId, or too large for a slab, are not stored
+     */
+    public void put(Message message) {
+        putIfNotInvalidatedSince(message, Long.MAX_VALUE);
+    }
+
+    /**
+     * @return the version to pass to putIfNotInvalidatedSince for a message
+     *         about to be loaded
+     */
+    public synchronized long stamp() {
+        return version;
+    }
+
+    /**
+     * put for a message loaded after stamp was taken, unless it was invalidated
+     * since
+     *
+     * @return false if message was not stored
+     */
+    public boolean putIfNotInvalidatedSince(Message message, long stamp) {
+        Integer messageId = message.getMessageId();
+        if (messageId == null || messageId == EMPTY) {
+            return false;
+        }
+        byte[] text = message.getMessageText() == null ? null
+                : message.getMessageText().getBytes(StandardCharsets.UTF_8);
+        int length = HEADER_SIZE + (text == null ? 0 : text.length);
+        if (length > SLAB_SIZE) {
+            return false;
+        }
+        byte flags = 0;
+        if (message.getPostedBy() == null) {
+            flags |= NULL_POSTED_BY;
+        }
+        if (message.getTimePostedEpoch() == null) {
+            flags |= NULL_TIME_POSTED_EPOCH;
+        }
+        if (text == null) {
+            flags |= NULL_MESSAGE_TEXT;
+        }
+        synchronized (this) {
+            int slot = messageId & indexMask;
+            if (stamp < forgottenVersion
+                    || indexKeys[slot] == messageId && indexPositions[slot] < 0 && -indexPositions[slot] > stamp) {
+                return false;
+            }
+            long position = allocate(length);
+            ByteBuffer slab = slab(position);
+            int offset = (int) (position % SLAB_SIZE);
+            slab.putInt(offset, messageId);
+            slab.putInt(offset + 4, message.getPostedBy() == null ? 0 : message.getPostedBy());
+            slab.putLong(offset + 8, message.getTimePostedEpoch() == null ? 0 : message.getTimePostedEpoch());
+            slab.put(offset + 16, flags);
+            slab.putInt(offset + 17, text == null ? 0 : text.length);
+            if (text != null) {
+                ByteBuffer target = slab.duplicate();
+                target.position(offset + HEADER_SIZE);
+                target.put(text);
+            }
+            if (indexKeys[slot] != EMPTY && indexKeys[slot] != messageId) {
+                if (indexPositions[slot] < 0) {
+                    forgottenVersion = Math.max(forgottenVersion, -indexPositions[slot]);
+                } else if (isLive(indexPositions[slot])) {
+                    evictions.increment();
+                }
+            }
+            indexKeys[slot] = messageId;
+            indexPositions[slot] = position;
+        }
+        return true;
+    }
+
+    /**
+     * @return a new Message read from the store, or null if message_id is not
+     *         stored
+     */
+    public Message get(int message_id) {
+        int postedBy;
+        long timePostedEpoch;
+        byte flags;
+        byte[] text;
+        synchronized (this) {
+            int slot = message_id & indexMask;
+            if (message_id == EMPTY || indexKeys[slot] != message_id || indexPositions[slot] < 0
+                    || !isLive(indexPositions[slot])) {
+                misses.increment();
+                return null;
+            }
+            long position = indexPositions[slot];
+            ByteBuffer slab = slab(position);
+            int offset = (int) (position % SLAB_SIZE);
+            postedBy = slab.getInt(offset + 4);
+            timePostedEpoch = slab.getLong(offset + 8);
+            flags = slab.get(offset + 16);
+            text = new byte[slab.getInt(offset + 17)];
+            ByteBuffer source = slab.duplicate();
+            source.position(offset + HEADER_SIZE);
+            source.get(text);
+        }
+        hits.increment();
+        return new Message(message_id,
+                (flags & NULL_POSTED_BY) != 0 ? null : postedBy,
+                (flags & NULL_MESSAGE_TEXT) != 0 ? null : new String(text, StandardCharsets.UTF_8),
+                (flags & NULL_TIME_POSTED_EPOCH) != 0 ? null : timePostedEpoch);
+    }
+
+    public synchronized void invalidate(int message_id) {
+        if (message_id == EMPTY) {
+            return;
+        }
+        int slot = message_id & indexMask;
+        if (indexKeys[slot] != EMPTY && indexKeys[slot] != message_id && indexPositions[slot] < 0) {
+            forgottenVersion = Math.max(forgottenVersion, -indexPositions[slot]);
+        }
+        indexKeys[slot] = message_id;
+        indexPositions[slot] = -++version;
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < indexKeys.length; i++) {
+            indexKeys[i] = EMPTY;
+        }
+        forgottenVersion = ++version;
+    }
+
+    public long getCapacityBytes() {
+        return (long) slabs.length * SLAB_SIZE;
+    }
+
+    public int getIndexSize() {
+        return indexKeys.length;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * messages forgotten because a newer message took their index slot. Records
+     * lost when their slab is reclaimed are not counted
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * reserves length bytes at the write position, skipping to the start of the
+     * next slab when the record would not fit in the current one
+     *
+     * @return logical position of the reserved bytes
+     */
+    private long allocate(int length) {
+        long remaining = SLAB_SIZE - writePosition % SLAB_SIZE;
+        if (length > remaining) {
+            writePosition += remaining;
+        }
+        long position = writePosition;
+        writePosition += length;
+        return position;
+    }
+
+    /**
+     * a record is live until the log wraps around into its slab
+     */
+    private boolean isLive(long position) {
+        return position / SLAB_SIZE > writePosition / SLAB_SIZE - slabs.length;
+    }
+
+    private ByteBuffer slab(long position) {
+        return slabs[(int) (position / SLAB_SIZE % slabs.length)];
+    }
+}
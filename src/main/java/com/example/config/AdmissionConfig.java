@@ -0,0 +1,31 @@
+package com.example.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.example.admission.AdmissionControl;
+
+/**
+ * puts AdmissionControl in front of the message and follow write endpoints, see
+ * application.properties for the limits
+ */
+@Configuration
+@Profile("!reactive")
+public class AdmissionConfig implements WebMvcConfigurer {
+
+    AdmissionControl admissionControl;
+
+    @Autowired
+    public AdmissionConfig(AdmissionControl admissionControl) {
+        this.admissionControl = admissionControl;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AdmissionControlInterceptor(admissionControl))
+                .addPathPatterns("/messages", "/messages/**", "/accounts/*/following/**");
+    }
+}
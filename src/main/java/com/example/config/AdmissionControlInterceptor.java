@@ -0,0 +1,53 @@
+package com.example.config;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import com.example.admission.AdmissionControl;
+import com.example.exception.TooManyRequestsException;
+
+/**
+ * admits write requests (anything but GET, HEAD and OPTIONS) through
+ * AdmissionControl before they reach the controller, keyed by the client
+ * address. A rejection is thrown as TooManyRequestsException and handled by
+ * the controller like any other exception
+ * behind a proxy the client address is only the real one with
+ * server.forward-headers-strategy configured
+ */
+public class AdmissionControlInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String ADMITTED_ATTRIBUTE = AdmissionControlInterceptor.class.getName() + ".admitted";
+
+    private final AdmissionControl admissionControl;
+
+    public AdmissionControlInterceptor(AdmissionControl admissionControl) {
+        this.admissionControl = admissionControl;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws TooManyRequestsException {
+        if (!(handler instanceof HandlerMethod) || request.getAttribute(ADMITTED_ATTRIBUTE) != null) {
+            return true;
+        }
+        String method = request.getMethod();
+        if ("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method)) {
+            return true;
+        }
+        admissionControl.admit(request.getRemoteAddr());
+        request.setAttribute(ADMITTED_ATTRIBUTE, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        if (request.getAttribute(ADMITTED_ATTRIBUTE) != null) {
+            request.removeAttribute(ADMITTED_ATTRIBUTE);
+            admissionControl.release();
+        }
+    }
+}
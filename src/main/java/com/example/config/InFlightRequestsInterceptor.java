@@ -0,0 +1,65 @@
+package com.example.config;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * gauge of the requests currently being handled by each controller mapping,
+ * published as http.server.requests.active tagged with method and uri
+ * asynchronous requests stay counted until their final dispatch completes
+ */
+public class InFlightRequestsInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String COUNTER_ATTRIBUTE = InFlightRequestsInterceptor.class.getName() + ".counter";
+
+    private final MeterRegistry registry;
+    private final ConcurrentHashMap<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    public InFlightRequestsInterceptor(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // async dispatches of a request that is already counted pass through
+        if (!(handler instanceof HandlerMethod) || request.getAttribute(COUNTER_ATTRIBUTE) != null) {
+            return true;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        AtomicInteger counter = inFlight.computeIfAbsent(request.getMethod() + " " + uri,
+                key -> register(request.getMethod(), uri));
+        counter.incrementAndGet();
+        request.setAttribute(COUNTER_ATTRIBUTE, counter);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        Object counter = request.getAttribute(COUNTER_ATTRIBUTE);
+        if (counter != null) {
+            ((AtomicInteger) counter).decrementAndGet();
+            request.removeAttribute(COUNTER_ATTRIBUTE);
+        }
+    }
+
+    private AtomicInteger register(String method, String uri) {
+        AtomicInteger counter = new AtomicInteger();
+        Gauge.builder("http.server.requests.active", counter, AtomicInteger::get)
+                .tag("method", method).tag("uri", uri)
+                .description("requests currently being handled")
+                .register(registry);
+        return counter;
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.example.cache.BloomFilterMetrics;
+import com.example.cache.BoundedCacheMetrics;
+import com.example.cache.OffHeapMessageStore;
+import com.example.feed.MessageFeed;
+import com.example.service.AccountService;
+import com.example.service.CredentialService;
+import com.example.service.FollowService;
+import com.example.service.MessageService;
+import com.example.timeline.HomeTimeline;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * metrics that spring boot does not publish on its own. Request timers by
+ * status (http.server.requests), repository timers
+ * (spring.data.repository.invocations), hikari and hibernate statistics are
+ * auto-configured, see application.properties
+ */
+@Configuration
+public class MetricsConfig implements WebMvcConfigurer {
+
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    public MetricsConfig(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new InFlightRequestsInterceptor(meterRegistry));
+    }
+
+    @Bean
+    public static MeterBinder messageCacheMetrics(MessageService messageService) {
+        return new BoundedCacheMetrics(messageService.getMessageCache(), "message");
+    }
+
+    @Bean
+    public static MeterBinder offHeapMessageStoreMetrics(MessageService messageService) {
+        OffHeapMessageStore store = messageService.getOffHeapStore();
+        return registry -> {
+            FunctionCounter.builder("cache.gets", store, OffHeapMessageStore::getHitCount)
+                    .tag("cache", "message.off-heap").tag("result", "hit")
+                    .description("the number of times cache lookup methods have returned a cached value")
+                    .register(registry);
+            FunctionCounter.builder("cache.gets", store, OffHeapMessageStore::getMissCount)
+                    .tag("cache", "message.off-heap").tag("result", "miss")
+                    .description("the number of times cache lookup methods have not returned a value")
+                    .register(registry);
+            FunctionCounter.builder("cache.evictions", store, OffHeapMessageStore::getEvictionCount)
+                    .tag("cache", "message.off-heap")
+                    .description("cache evictions")
+                    .register(registry);
+            Gauge.builder("cache.off.heap.capacity", store, OffHeapMessageStore::getCapacityBytes)
+                    .tag("cache", "message.off-heap")
+                    .baseUnit("bytes")
+                    .description("direct memory reserved by the store")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public static MeterBinder accountUsernameCacheMetrics(AccountService accountService) {
+        return new BoundedCacheMetrics(accountService.getUsernameCache(), "account.username");
+    }
+
+    @Bean
+    public static MeterBinder accountIdCacheMetrics(AccountService accountService) {
+        return new BoundedCacheMetrics(accountService.getAccountIdCache(), "account.id");
+    }
+
+    @Bean
+    public static MeterBinder accountUsernameFilterMetrics(AccountService accountService) {
+        return new BloomFilterMetrics(accountService.getUsernameFilter(), "account.username");
+    }
+
+    @Bean
+    public static MeterBinder accountIdFilterMetrics(AccountService accountService) {
+        return new BloomFilterMetrics(accountService.getAccountIdFilter(), "account.id");
+    }
+
+    @Bean
+    public static MeterBinder verifiedCredentialsCacheMetrics(CredentialService credentialService) {
+        return new BoundedCacheMetrics(credentialService.getVerifiedCredentials(), "credentials.verified");
+    }
+
+    @Bean
+    public static MeterBinder followerCacheMetrics(FollowService followService) {
+        return new BoundedCacheMetrics(followService.getFollowerCache(), "followers");
+    }
+
+    @Bean
+    public static MeterBinder homeTimelineMetrics(HomeTimeline homeTimeline, FollowService followService) {
+        return registry -> {
+            new BoundedCacheMetrics(homeTimeline.getRings(), "timeline").bindTo(registry);
+            Gauge.builder("timeline.celebrities", followService, FollowService::getCelebrityCount)
+                    .description("accounts whose messages are pulled instead of fanned out")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public static MeterBinder messageFeedMetrics(MessageFeed messageFeed) {
+        return registry -> {
+            Gauge.builder("feed.subscribers", messageFeed, MessageFeed::getSubscriberCount)
+                    .description("open message feed subscriptions")
+                    .register(registry);
+            FunctionCounter.builder("feed.events.dropped", messageFeed, MessageFeed::getDroppedCount)
+                    .description("events dropped from full subscriber buffers")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * binary alternatives to JSON for service to service calls, chosen by content
+ * negotiation: application/cbor and application/x-jackson-smile in Accept for
+ * responses, in Content-Type for request bodies. JSON stays the default
+ * the mappers are built from spring boot's Jackson2ObjectMapperBuilder, so
+ * they carry the same configuration and serializers as the JSON one, see
+ * EntityJsonSerializers. The converters replace the ones spring mvc would
+ * otherwise register with a plain mapper
+ * the reactive profile stays JSON only: custom webflux codecs are consulted
+ * before the JSON one, and the CBOR encoder cannot stream a Flux
+ */
+@Configuration
+public class WireFormatConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(
+            ObjectProvider<Jackson2ObjectMapperBuilder> builder) {
+        return new MappingJackson2CborHttpMessageConverter(cborObjectMapper(builder));
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(
+            ObjectProvider<Jackson2ObjectMapperBuilder> builder) {
+        return new MappingJackson2SmileHttpMessageConverter(smileObjectMapper(builder));
+    }
+
+    /**
+     * builder is a prototype bean, every call gets a fresh one
+     */
+    private static ObjectMapper cborObjectMapper(ObjectProvider<Jackson2ObjectMapperBuilder> builder) {
+        return builder.getObject().factory(new CBORFactory()).build();
+    }
+
+    private static ObjectMapper smileObjectMapper(ObjectProvider<Jackson2ObjectMapperBuilder> builder) {
+        return builder.getObject().factory(new SmileFactory()).build();
+    }
+}
@@ -1,9 +1,20 @@
 package com.example.controller;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -11,10 +22,15 @@ import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.example.admission.AdmissionControl;
+import com.example.dto.MessageBatchResult;
 import com.example.entity.Message;
 import com.example.entity.Account;
 import com.example.exception.ClientFormatException;
@@ -22,10 +38,17 @@ import com.example.exception.DuplicateUsernameException;
 import com.example.exception.IncorrectPasswordException;
 import com.example.exception.MessageDoesNotExistErrorException;
 import com.example.exception.MessageDoesNotExistOKException;
+import com.example.exception.TooManyRequestsException;
 import com.example.exception.AccountDoesNotExistException;
+import com.example.feed.MessageFeed;
+import com.example.search.MessageSearchIndex;
 import com.example.service.MessageService;
 import com.example.service.AccountService;
+import com.example.service.CredentialService;
+import com.example.timeline.HomeTimeline;
 import com.example.utils.Utils;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * controller using Spring. The endpoints you will need can be
@@ -35,44 +58,310 @@ import com.example.utils.Utils;
  * You should
  * refer to prior mini-project labs and lecture materials for guidance on how a
  * controller may be built.
+ * Replaced by ReactiveSocialMediaController under the reactive profile, built
+ * with mvn -Preactive.
  */
 @RestController
+@Profile("!reactive")
 public class SocialMediaController {
 
     AccountService accountService;
+    CredentialService credentialService;
     MessageService messageService;
+    MessageFeed messageFeed;
+    MessageSearchIndex messageSearchIndex;
+    HomeTimeline homeTimeline;
+    AdmissionControl admissionControl;
+    ObjectMapper objectMapper;
 
     @Autowired
-    public SocialMediaController(AccountService accountService, MessageService messageService) {
+    public SocialMediaController(AccountService accountService, CredentialService credentialService,
+            MessageService messageService, MessageFeed messageFeed, MessageSearchIndex messageSearchIndex,
+            HomeTimeline homeTimeline, AdmissionControl admissionControl, ObjectMapper objectMapper) {
         this.accountService = accountService;
+        this.credentialService = credentialService;
         this.messageService = messageService;
+        this.messageFeed = messageFeed;
+        this.messageSearchIndex = messageSearchIndex;
+        this.homeTimeline = homeTimeline;
+        this.admissionControl = admissionControl;
+        this.objectMapper = objectMapper;
     }
 
     /**
      * GET endpoint that retrieves all messages
-     * status 200 always
+     * without after, sinceTime, sinceId or limit every message is returned. With
+     * after or limit a keyset page is returned instead: at most limit messages
+     * with message_id greater than after, ordered by message_id. The last
+     * message_id of a page is the after of the next one
+     * with sinceTime only the messages newer than the cursor are returned, oldest
+     * first: timePostedEpoch greater than sinceTime, or equal to it with
+     * messageId greater than sinceId. The timePostedEpoch and messageId of the
+     * last message returned are the sinceTime and sinceId of the next refresh.
+     * sinceId alone behaves as after
+     * since only ever returns new rows past the cursor. Updates and deletes of
+     * messages already read are not reported, GET /messages/feed streams them.
+     * The cursor orders by the client supplied timePostedEpoch, and messageIds
+     * are not handed out in commit order, so a message posted with an older
+     * timePostedEpoch, or committed after a newer one was read, is skipped
+     * status 400 if after is combined with sinceTime or sinceId, or limit is less
+     * than 1. status 200 otherwise
      * 
+     * @param after     message_id to start after. Defaults to 0
+     * @param sinceTime timePostedEpoch of the since cursor
+     * @param sinceId   messageId of the since cursor
+     * @param limit     maximum number of messages returned. Defaults to
+     *                  MessageService.DEFAULT_PAGE_SIZE, capped at
+     *                  MessageService.MAX_PAGE_SIZE
      * @return List<Message> the list of existing messages. Empty list if no message
      *         exists
+     * @throws ClientFormatException exception thrown when the cursor or limit is
+     *                               illformed
      */
     @GetMapping(value = "messages")
     @ResponseStatus(HttpStatus.OK)
-    public @ResponseBody List<Message> getAllMessages() {
-        return messageService.findAll();
+    public @ResponseBody List<Message> getAllMessages(@RequestParam(required = false) Integer after,
+            @RequestParam(required = false) Long sinceTime, @RequestParam(required = false) Integer sinceId,
+            @RequestParam(required = false) Integer limit) throws ClientFormatException {
+        boolean since = sinceTime != null || sinceId != null;
+        if (after == null && !since && limit == null) {
+            return messageService.findAll();
+        }
+        // after and since are two different cursors
+        if (after != null && since) {
+            throw new ClientFormatException();
+        }
+        if (limit == null) {
+            limit = MessageService.DEFAULT_PAGE_SIZE;
+        }
+        // validates page size
+        if (!Utils.validatePageLimit(limit)) {
+            throw new ClientFormatException();
+        }
+        if (since) {
+            return messageService.findSince(sinceTime, sinceId, limit);
+        }
+        return messageService.findAfter(after == null ? 0 : after, limit);
     }
 
     /**
-     * GET endpoint that retrieves all message of account with account_id
+     * GET endpoint that streams all messages as a JSON array
+     * messages are read from a forward-only result set and written to the
+     * response as they are read, so memory use does not grow with the table
+     * status 200 always
+     * 
+     * @return StreamingResponseBody JSON array of every message ordered by
+     *         message_id
+     */
+    @GetMapping(value = "messages", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllMessages() {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                messageService.streamAll(message -> {
+                    try {
+                        generator.writeObject(message);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * GET endpoint that searches the text of every message
+     * returns the messages matching every term of q, best match first. A page of
+     * at most limit messages is returned after skipping offset matches
+     * status 400 if q is blank or 256 characters or longer, limit is less than 1
+     * or offset is negative. status 200 otherwise
+     * 
+     * @param q      the terms to search for
+     * @param limit  maximum number of messages returned. Defaults to
+     *               MessageService.DEFAULT_PAGE_SIZE, capped at
+     *               MessageService.MAX_PAGE_SIZE
+     * @param offset number of matches to skip. Defaults to 0
+     * @return List<Message> the matching messages. Empty list if none match
+     * @throws ClientFormatException exception thrown when q, limit or offset is
+     *                               illformed
+     */
+    @GetMapping(value = "messages/search")
+    @ResponseStatus(HttpStatus.OK)
+    public @ResponseBody List<Message> searchMessages(@RequestParam(required = false) String q,
+            @RequestParam(required = false) Integer limit, @RequestParam(required = false) Integer offset)
+            throws ClientFormatException, IOException {
+        if (limit == null) {
+            limit = MessageService.DEFAULT_PAGE_SIZE;
+        }
+        if (offset == null) {
+            offset = 0;
+        }
+        // validates query and page
+        if (!Utils.validateSearchQuery(q) || !Utils.validatePageLimit(limit) || !Utils.validatePageOffset(offset)) {
+            throw new ClientFormatException();
+        }
+        return messageSearchIndex.search(q, offset, Math.min(limit, MessageService.MAX_PAGE_SIZE));
+    }
+
+    /**
+     * GET endpoint that pushes every message created, updated or deleted from now
+     * on as server-sent events named created, updated and deleted. The data of
+     * each event is the message as JSON and its id is the message_id
+     * a "dropped" event carrying a count is sent when the client fell behind and
+     * events were skipped
      * status 200 always
      * 
+     * @return SseEmitter the open event stream
+     */
+    @GetMapping(value = "messages/feed", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getMessageFeed() {
+        return messageFeed.subscribe();
+    }
+
+    /**
+     * GET endpoint that pushes the messages of account with account_id created,
+     * updated or deleted from now on, as in GET /messages/feed
+     * status 200 always
+     * 
+     * @param account_id
+     * @return SseEmitter the open event stream
+     */
+    @GetMapping(value = "accounts/{account_id}/messages/feed", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getMessageFeedFromUser(@PathVariable int account_id) {
+        return messageFeed.subscribe(account_id);
+    }
+
+    /**
+     * GET endpoint that retrieves all message of account with account_id
+     * without beforeTime, beforeId, sinceTime, sinceId or limit every message of
+     * the account is returned. With beforeTime, beforeId or limit a newest-first
+     * page is returned instead: at most limit messages ordered by timePostedEpoch
+     * then messageId, descending. The timePostedEpoch and messageId of the last
+     * message of a page are the beforeTime and beforeId of the next one
+     * with sinceTime or sinceId only the messages newer than the cursor are
+     * returned, oldest first, as in GET /messages. sinceId alone returns the
+     * messages with messageId greater than sinceId, ordered by messageId. The
+     * cursor has the limits described on GET /messages
+     * status 400 if only one of beforeTime and beforeId is given, a before cursor
+     * is combined with a since cursor, or limit is less than 1. status 200
+     * otherwise
+     * 
      * @param account_id
+     * @param beforeTime timePostedEpoch of the before cursor
+     * @param beforeId   messageId of the before cursor
+     * @param sinceTime  timePostedEpoch of the since cursor
+     * @param sinceId    messageId of the since cursor
+     * @param limit      maximum number of messages returned. Defaults to
+     *                   MessageService.DEFAULT_PAGE_SIZE, capped at
+     *                   MessageService.MAX_PAGE_SIZE
      * @return List<Message> the list of messages of account with account_id. Empty
      *         list if account has no messages, or no account with account_id exists
+     * @throws ClientFormatException exception thrown when the cursor or limit is
+     *                               illformed
      */
     @GetMapping(value = "accounts/{account_id}/messages")
     @ResponseStatus(HttpStatus.OK)
-    public @ResponseBody List<Message> getMessagesFromUser(@PathVariable int account_id) {
-        return messageService.findByPostedBy(account_id);
+    public @ResponseBody List<Message> getMessagesFromUser(@PathVariable int account_id,
+            @RequestParam(required = false) Long beforeTime, @RequestParam(required = false) Integer beforeId,
+            @RequestParam(required = false) Long sinceTime, @RequestParam(required = false) Integer sinceId,
+            @RequestParam(required = false) Integer limit) throws ClientFormatException {
+        boolean before = beforeTime != null || beforeId != null;
+        boolean since = sinceTime != null || sinceId != null;
+        if (!before && !since && limit == null) {
+            return messageService.findByPostedBy(account_id);
+        }
+        // a before cursor needs both of its halves, and cannot be mixed with since
+        if ((beforeTime == null) != (beforeId == null) || (before && since)) {
+            throw new ClientFormatException();
+        }
+        if (limit == null) {
+            limit = MessageService.DEFAULT_PAGE_SIZE;
+        }
+        // validates page size
+        if (!Utils.validatePageLimit(limit)) {
+            throw new ClientFormatException();
+        }
+        if (since) {
+            return messageService.findTimelineSince(account_id, sinceTime, sinceId, limit);
+        }
+        return messageService.findTimeline(account_id, beforeTime, beforeId, limit);
+    }
+
+    /**
+     * GET endpoint that retrieves the home timeline of account with account_id,
+     * its own messages and those of the accounts it follows, newest first by
+     * messageId. The messageId of the last message returned is the beforeId of
+     * the next page. Only the newest app.timeline.capacity messages of accounts
+     * that are not celebrities are served
+     * status 400 if limit is less than 1. status 200 otherwise
+     * 
+     * @param account_id
+     * @param beforeId messageId to start before. Defaults to the newest message
+     * @param limit    maximum number of messages returned. Defaults to
+     *                 MessageService.DEFAULT_PAGE_SIZE, capped at
+     *                 MessageService.MAX_PAGE_SIZE
+     * @return List<Message> the home timeline of account with account_id. Empty
+     *         list if no account with account_id exists
+     * @throws ClientFormatException exception thrown when limit is illformed
+     */
+    @GetMapping(value = "accounts/{account_id}/home")
+    @ResponseStatus(HttpStatus.OK)
+    public @ResponseBody List<Message> getHomeTimeline(@PathVariable int account_id,
+            @RequestParam(required = false) Integer beforeId, @RequestParam(required = false) Integer limit)
+            throws ClientFormatException {
+        if (limit == null) {
+            limit = MessageService.DEFAULT_PAGE_SIZE;
+        }
+        // validates page size
+        if (!Utils.validatePageLimit(limit)) {
+            throw new ClientFormatException();
+        }
+        if (accountService.findByAccountId(account_id) == null) {
+            return new ArrayList<>();
+        }
+        return homeTimeline.findHomeTimeline(account_id, beforeId,
+                Math.min(limit, MessageService.MAX_PAGE_SIZE));
+    }
+
+    /**
+     * POST endpoint that makes account with account_id follow account with
+     * followee_id. Following an account twice changes nothing
+     * status 400 if either account does not exist, or an account follows itself
+     * status 200 otherwise
+     * 
+     * @param account_id
+     * @param followee_id
+     * @throws ClientFormatException exception thrown when either account does not
+     *                               exist or both are the same
+     */
+    @PostMapping(value = "accounts/{account_id}/following/{followee_id}")
+    @ResponseStatus(HttpStatus.OK)
+    public void postFollow(@PathVariable int account_id, @PathVariable int followee_id)
+            throws ClientFormatException {
+        // verifies both accounts exist and differ
+        if (account_id == followee_id || accountService.findByAccountId(account_id) == null
+                || accountService.findByAccountId(followee_id) == null) {
+            throw new ClientFormatException();
+        }
+        homeTimeline.follow(account_id, followee_id);
+    }
+
+    /**
+     * DELETE endpoint that makes account with account_id stop following account
+     * with followee_id
+     * status 200 always
+     * 
+     * @param account_id
+     * @param followee_id
+     * @return int number of rows deleted. 0 if account_id did not follow
+     *         followee_id
+     */
+    @DeleteMapping(value = "accounts/{account_id}/following/{followee_id}")
+    @ResponseStatus(HttpStatus.OK)
+    public @ResponseBody int deleteFollow(@PathVariable int account_id, @PathVariable int followee_id) {
+        return homeTimeline.unfollow(account_id, followee_id);
     }
 
     /**
@@ -91,16 +380,19 @@ public class SocialMediaController {
     /**
      * POST endpoint that registers an account. Request body should contain JSON of
      * account to be inserted into the database
-     * validates username and password format, then checks if username is taken
+     * validates username and password format. The password is hashed on the
+     * hashing pool, then the account is inserted on the request thread and the
+     * unique constraint on username decides whether it is taken
      * status 400 if format is illformed. Status 409 if username is taken
+     * status 503 if the hashing pool is saturated
      * status 200 if successful. Returns registered account
      * 
      * @param account new account to be registered. Does not contain account_id
      * @return Account the account just registered. Contains account_id
-     * @throws ClientFormatException      exception thrown when username or password
-     *                                    are illformed. status 400
-     * @throws DuplicateUsernameException exception thrown when username is already
-     *                                    taken. status 409
+     * @throws ClientFormatException      exception thrown when username or
+     *                                    password are illformed. status 400
+     * @throws DuplicateUsernameException exception thrown when username is
+     *                                    already taken. status 409
      */
     @PostMapping(value = "register")
     @ResponseStatus(HttpStatus.OK)
@@ -110,42 +402,29 @@ public class SocialMediaController {
         if (!Utils.validateAccountFormat(account)) {
             throw new ClientFormatException();
         }
-        // verify username has not been taken
-        if (accountService.findByUsername(account.getUsername()) != null) {
-            throw new DuplicateUsernameException();
-        }
-        return accountService.save(account);
+        return credentialService.register(account);
     }
 
     /**
      * POST endpoint that logs an account in. Request body should contain JSON of
      * account to be logged in
-     * verifies account exists in database and password is correct
-     * status 401 if login fails
+     * verifies account exists in database and password matches its hash. The
+     * password is verified on the hashing pool
+     * status 401 if login fails. status 503 if the hashing pool is saturated
      * status 200 if successful. Returns logged in account
      * 
      * @param account the account to login with. Does not contain account_id
      * @return Account the account just logged in. Contains account_id
-     * @throws IncorrectPasswordException   exception thrown when password does not
-     *                                      match
+     * @throws IncorrectPasswordException  exception thrown when password does not
+     *                                     match. status 401
      * @throws AccountDoesNotExistException exception thrown when account does not
-     *                                      exist
+     *                                     exist. status 401
      */
     @PostMapping(value = "login")
     @ResponseStatus(HttpStatus.OK)
     public @ResponseBody Account postLoginAccount(@RequestBody Account account)
             throws IncorrectPasswordException, AccountDoesNotExistException {
-        // retrieves account
-        Account registeredAccount = accountService.findByUsername(account.getUsername());
-        // checks if exists
-        if (registeredAccount == null) {
-            throw new AccountDoesNotExistException();
-        }
-        // checks password
-        if (!registeredAccount.getPassword().equals(account.getPassword())) {
-            throw new IncorrectPasswordException();
-        }
-        return registeredAccount;
+        return credentialService.login(account.getUsername(), account.getPassword());
     }
 
     /**
@@ -153,20 +432,23 @@ public class SocialMediaController {
      * the new message to be inserted into the database
      * validates message format, checks it is posted by an existing account
      * status 400 if message creation fails in any way
+     * status 429 if the posting account is over its rate
      * status 200 if successful. Returns created message
      * 
      * @param message the message to create. Does not contain message_id
      * @return Message the message created. Contains message_id
-     * @throws ClientFormatException exception thrown if message is illformed, or
-     *                               the message is posted by an non-existing
-     *                               account
+     * @throws ClientFormatException    exception thrown if message is illformed,
+     *                                  or the message is posted by an
+     *                                  non-existing account
+     * @throws TooManyRequestsException exception thrown if the posting account
+     *                                  is over its rate
      */
     @PostMapping(value = "messages")
     @ResponseStatus(HttpStatus.OK)
-    public @ResponseBody Message postCreateMessage(@RequestBody Message message) throws ClientFormatException {
+    public @ResponseBody Message postCreateMessage(@RequestBody Message message)
+            throws ClientFormatException, TooManyRequestsException {
         // validates message format
         if (!Utils.validateMessageFormat(message)) {
-            System.out.println("bad message");
             throw new ClientFormatException();
         }
         // retrieves posted by account
@@ -175,15 +457,92 @@ public class SocialMediaController {
         if (postedBy == null) {
             throw new ClientFormatException();
         }
+        admissionControl.admitAccount(postedBy.getAccountId());
         return messageService.save(message);
     }
 
+    /**
+     * POST endpoint that creates many messages at once. Request body should
+     * contain a JSON array of the new messages
+     * every message is validated as in POST /messages, null elements are
+     * rejected like invalid messages. Every distinct postedBy is checked with a
+     * single query and the valid messages are inserted in one batched
+     * transaction
+     * every existing postedBy takes one permit of its account rate per valid
+     * message it posts in the batch, as many as it has left. Its messages are
+     * admitted in order up to the permits taken, the rest are rejected with
+     * status 429
+     * status 400 if the array is larger than MessageService.MAX_PAGE_SIZE
+     * status 200 otherwise. Returns one result per submitted message, in order
+     * 
+     * @param messages the messages to create. Do not contain message_id
+     * @return List<MessageBatchResult> status 200 and the created message, or
+     *         status 400 or 429, for each submitted message
+     * @throws ClientFormatException exception thrown if the batch is too large
+     */
+    @PostMapping(value = "messages/batch")
+    @ResponseStatus(HttpStatus.OK)
+    public @ResponseBody List<MessageBatchResult> postCreateMessages(@RequestBody List<Message> messages)
+            throws ClientFormatException {
+        if (messages.size() > MessageService.MAX_PAGE_SIZE) {
+            throw new ClientFormatException();
+        }
+        // verifies every distinct poster exists at once
+        Set<Integer> postedBy = new HashSet<>();
+        for (Message message : messages) {
+            if (message != null && message.getPostedBy() != null) {
+                postedBy.add(message.getPostedBy());
+            }
+        }
+        Set<Integer> existingAccounts = accountService.findExistingAccountIds(postedBy);
+        // rate limits every existing poster by the number of messages it posts
+        Map<Integer, Integer> permits = new HashMap<>();
+        for (Message message : messages) {
+            if (Utils.validateMessageFormat(message) && existingAccounts.contains(message.getPostedBy())) {
+                permits.merge(message.getPostedBy(), 1, Integer::sum);
+            }
+        }
+        for (Map.Entry<Integer, Integer> entry : permits.entrySet()) {
+            entry.setValue(admissionControl.tryAcquireAccountUpTo(entry.getKey(), entry.getValue()));
+        }
+        // validates message format and poster, spending the permits taken in order
+        List<Message> accepted = new ArrayList<>();
+        boolean[] valid = new boolean[messages.size()];
+        boolean[] throttled = new boolean[messages.size()];
+        for (int i = 0; i < messages.size(); i++) {
+            Message message = messages.get(i);
+            if (Utils.validateMessageFormat(message) && existingAccounts.contains(message.getPostedBy())) {
+                if (permits.merge(message.getPostedBy(), -1, Integer::sum) < 0) {
+                    throttled[i] = true;
+                    continue;
+                }
+                message.setMessageId(null);
+                accepted.add(message);
+                valid[i] = true;
+            }
+        }
+        List<Message> saved = messageService.saveAll(accepted);
+        List<MessageBatchResult> results = new ArrayList<>(messages.size());
+        int next = 0;
+        for (int i = 0; i < messages.size(); i++) {
+            if (valid[i]) {
+                results.add(MessageBatchResult.created(saved.get(next++)));
+            } else if (throttled[i]) {
+                results.add(MessageBatchResult.throttled());
+            } else {
+                results.add(MessageBatchResult.rejected());
+            }
+        }
+        return results;
+    }
+
     /**
      * PATCH endpoint that updates an existing message with new text. Request body
      * should contain the message to replace the existing message
-     * validates new message format and checks if old message exists then updates
-     * only the text of the existing message
+     * validates new message format then updates only the text of the existing
+     * message with a single conditional update
      * status 400 if message update fails in any way
+     * status 503 if the message is acknowledged but not yet written behind
      * status 200 if successful
      * 
      * @param message_id the message to be patched
@@ -204,24 +563,22 @@ public class SocialMediaController {
         if (!Utils.validateMessageFormat(message)) {
             throw new ClientFormatException();
         }
-        // retrieves old message
-        Message oldMessage = messageService.findByMessageId(message_id);
-        // checks if old message exist
-        if (oldMessage == null) {
+        // updates the text in place. No row updated means the old message does not
+        // exist
+        int updated = messageService.updateMessageText(message_id, message.getMessageText());
+        if (updated == 0) {
             throw new MessageDoesNotExistErrorException();
         }
-        oldMessage.setMessageText(message.getMessageText());
-        messageService.save(oldMessage);
-        // since message_id is a primary key thus unique, always return 1 if patch is
-        // successful
-        return 1;
+        // since message_id is a primary key thus unique, this is always 1
+        return updated;
     }
 
     /**
      * DELETE endpoint that deletes a message by message_id
      * deletes a message and returns the number of rows deleted in the database
      * returns empty response body if message does not exist
-     * status 200 always
+     * status 503 if the message is acknowledged but not yet written behind
+     * status 200 otherwise
      * 
      * @param message_id
      * @return int number of rows deleted. This is always 1 if deletion is
@@ -233,11 +590,13 @@ public class SocialMediaController {
     @DeleteMapping(value = "messages/{message_id}")
     @ResponseStatus(HttpStatus.OK)
     public @ResponseBody int deleteMessageByID(@PathVariable int message_id) throws MessageDoesNotExistOKException {
-        // checks if message with message_id exists
-        if (messageService.findByMessageId(message_id) == null) {
+        // deletes in place. No row deleted means message with message_id does not
+        // exist
+        int deleted = messageService.deleteById(message_id);
+        if (deleted == 0) {
             throw new MessageDoesNotExistOKException();
         }
-        return messageService.deleteById(message_id);
+        return deleted;
     }
 
     /**
@@ -273,4 +632,20 @@ public class SocialMediaController {
     public @ResponseBody void handleConflictException() {
     }
 
+    /**
+     * status 429
+     */
+    @ExceptionHandler(TooManyRequestsException.class)
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public @ResponseBody void handleTooManyRequestsException() {
+    }
+
+    /**
+     * status 503
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public @ResponseBody void handleServiceUnavailableException() {
+    }
+
 }
\ No newline at end of file
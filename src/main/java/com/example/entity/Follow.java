@@ -0,0 +1,98 @@
+package com.example.entity;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import javax.persistence.*;
+
+/**
+ * follower follows followee. The pair is the primary key, so an account
+ * follows another at most once
+ */
+@Entity
+@Table(name="follow")
+@IdClass(Follow.Key.class)
+public class Follow {
+    @Id
+    private Integer followerId;
+    @Id
+    private Integer followeeId;
+
+    public Follow() {
+    }
+
+    public Follow(Integer followerId, Integer followeeId) {
+        this.followerId = followerId;
+        this.followeeId = followeeId;
+    }
+
+    public Integer getFollowerId() {
+        return followerId;
+    }
+
+    public void setFollowerId(Integer followerId) {
+        this.followerId = followerId;
+    }
+
+    public Integer getFolloweeId() {
+        return followeeId;
+    }
+
+    public void setFolloweeId(Integer followeeId) {
+        this.followeeId = followeeId;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null || getClass() != obj.getClass())
+            return false;
+        Follow other = (Follow) obj;
+        return Objects.equals(followerId, other.followerId) && Objects.equals(followeeId, other.followeeId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(followerId, followeeId);
+    }
+
+    @Override
+    public String toString() {
+        return "Follow{" +
+                "followerId=" + followerId +
+                ", followeeId=" + followeeId +
+                '}';
+    }
+
+    /**
+     * composite primary key of Follow
+     */
+    public static class Key implements Serializable {
+        private Integer followerId;
+        private Integer followeeId;
+
+        public Key() {
+        }
+
+        public Key(Integer followerId, Integer followeeId) {
+            this.followerId = followerId;
+            this.followeeId = followeeId;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null || getClass() != obj.getClass())
+                return false;
+            Key other = (Key) obj;
+            return Objects.equals(followerId, other.followerId) && Objects.equals(followeeId, other.followeeId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(followerId, followeeId);
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package com.example.exception;
+
+public class TooManyRequestsException extends Exception {
+
+}
@@ -0,0 +1,51 @@
+package com.example.feed;
+
+import com.example.entity.Message;
+
+/**
+ * published by MessageService after a message is created, updated or deleted.
+ * The message is a detached copy holding the state after the change, or the
+ * last known state for a deletion
+ */
+public class MessageEvent {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final Type type;
+    private final Message message;
+
+    public MessageEvent(Type type, Message message) {
+        this.type = type;
+        this.message = message;
+    }
+
+    public static MessageEvent created(Message message) {
+        return new MessageEvent(Type.CREATED, message);
+    }
+
+    public static MessageEvent updated(Message message) {
+        return new MessageEvent(Type.UPDATED, message);
+    }
+
+    public static MessageEvent deleted(Message message) {
+        return new MessageEvent(Type.DELETED, message);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Message getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "MessageEvent{" +
+                "type=" + type +
+                ", message=" + message +
+                '}';
+    }
+}
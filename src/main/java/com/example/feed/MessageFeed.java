@@ -0,0 +1,229 @@
+package com.example.feed;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * in-process fan-out of MessageEvents to server-sent event subscribers, either
+ * of every message or of the messages of one account
+ * publishing never blocks: every subscriber has a bounded buffer drained by a
+ * small pool of sender threads. When a slow subscriber's buffer is full its
+ * oldest event is dropped, and a "dropped" event carrying the number of
+ * skipped events is sent before the next one so the client knows to re-read
+ */
+@Component
+public class MessageFeed {
+
+    final Set<Subscription> everyMessage = new CopyOnWriteArraySet<>();
+    final ConcurrentMap<Integer, Set<Subscription>> byAccount = new ConcurrentHashMap<>();
+    final AtomicInteger subscriberCount = new AtomicInteger();
+    final AtomicLong droppedCount = new AtomicLong();
+    final ExecutorService senders;
+    final int bufferSize;
+    final long timeoutMillis;
+
+    public MessageFeed(@Value("${app.feed.buffer-size}") int bufferSize,
+            @Value("${app.feed.sender-threads}") int senderThreads,
+            @Value("${app.feed.timeout-seconds}") long timeoutSeconds) {
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = Duration.ofSeconds(timeoutSeconds).toMillis();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "feed-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * subscribes to the events of every message
+     */
+    public SseEmitter subscribe() {
+        Subscription subscription = new Subscription(null);
+        everyMessage.add(subscription);
+        return subscription.open();
+    }
+
+    /**
+     * subscribes to the events of the messages posted by account_id
+     */
+    public SseEmitter subscribe(int account_id) {
+        Subscription subscription = new Subscription(account_id);
+        byAccount.compute(account_id, (key, subscriptions) -> {
+            if (subscriptions == null) {
+                subscriptions = new CopyOnWriteArraySet<>();
+            }
+            subscriptions.add(subscription);
+            return subscriptions;
+        });
+        return subscription.open();
+    }
+
+    /**
+     * runs after the publishing transaction commits, or immediately when there is
+     * none, so subscribers never see a change that was rolled back
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMessageEvent(MessageEvent event) {
+        for (Subscription subscription : everyMessage) {
+            subscription.offer(event);
+        }
+        Integer postedBy = event.getMessage().getPostedBy();
+        if (postedBy != null) {
+            Set<Subscription> subscriptions = byAccount.get(postedBy);
+            if (subscriptions != null) {
+                for (Subscription subscription : subscriptions) {
+                    subscription.offer(event);
+                }
+            }
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    /**
+     * events dropped from full subscriber buffers since startup
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+        everyMessage.forEach(Subscription::complete);
+        byAccount.values().forEach(subscriptions -> subscriptions.forEach(Subscription::complete));
+    }
+
+    class Subscription {
+        final Integer account_id;
+        final SseEmitter emitter = new SseEmitter(timeoutMillis);
+        final BlockingQueue<MessageEvent> buffer = new ArrayBlockingQueue<>(bufferSize);
+        final AtomicBoolean draining = new AtomicBoolean();
+        final AtomicBoolean closed = new AtomicBoolean();
+        final AtomicLong dropped = new AtomicLong();
+
+        Subscription(Integer account_id) {
+            this.account_id = account_id;
+        }
+
+        SseEmitter open() {
+            subscriberCount.incrementAndGet();
+            emitter.onCompletion(this::close);
+            emitter.onTimeout(this::complete);
+            emitter.onError(error -> close());
+            try {
+                // commits the response headers right away instead of with the first event
+                emitter.send(SseEmitter.event().comment("subscribed"));
+            } catch (IOException e) {
+                close();
+            }
+            return emitter;
+        }
+
+        void offer(MessageEvent event) {
+            while (!buffer.offer(event)) {
+                if (buffer.poll() != null) {
+                    dropped.incrementAndGet();
+                    droppedCount.incrementAndGet();
+                }
+            }
+            schedule();
+        }
+
+        void schedule() {
+            if (closed.get() || !draining.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                senders.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                draining.set(false);
+            }
+        }
+
+        void drain() {
+            try {
+                MessageEvent event;
+                while ((event = buffer.poll()) != null) {
+                    long skipped = dropped.getAndSet(0);
+                    if (skipped > 0) {
+                        emitter.send(SseEmitter.event().name("dropped").data(skipped));
+                    }
+                    emitter.send(SseEmitter.event()
+                            .id(String.valueOf(event.getMessage().getMessageId()))
+                            .name(event.getType().name().toLowerCase())
+                            .data(event.getMessage(), MediaType.APPLICATION_JSON));
+                }
+            } catch (IOException | IllegalStateException e) {
+                // the client went away or the emitter already completed
+                close();
+                return;
+            } finally {
+                draining.set(false);
+            }
+            // an event may have been offered after the last poll but before draining
+            // was reset
+            if (!buffer.isEmpty()) {
+                schedule();
+            }
+        }
+
+        /**
+         * completes the emitter unless the subscription already ended, e.g. by the
+         * client going away or a timeout
+         */
+        void complete() {
+            if (!close()) {
+                return;
+            }
+            try {
+                emitter.complete();
+            } catch (RuntimeException e) {
+                // the container already tore the connection down, e.g. while shutting down
+            }
+        }
+
+        /**
+         * @return whether this call ended the subscription
+         */
+        boolean close() {
+            if (!closed.compareAndSet(false, true)) {
+                return false;
+            }
+            subscriberCount.decrementAndGet();
+            buffer.clear();
+            if (account_id == null) {
+                everyMessage.remove(this);
+            } else {
+                byAccount.computeIfPresent(account_id, (key, subscriptions) -> {
+                    subscriptions.remove(this);
+                    return subscriptions.isEmpty() ? null : subscriptions;
+                });
+            }
+            return true;
+        }
+    }
+}
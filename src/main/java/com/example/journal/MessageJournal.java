@@ -0,0 +1,230 @@
+package com.example.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import com.example.entity.Message;
+
+/**
+ * journal of created messages in a memory-mapped file, used as a ring
+ * the file starts with a header of magic and checkpoint. Records follow back
+ * to back, each as lap, payload length, CRC32 of the payload and the payload
+ * (messageId, null flags, postedBy, timePostedEpoch, UTF-8 messageText)
+ * positions are handed out as marks, the lap in the high and the offset in the
+ * low 32 bits. Records before the checkpoint mark are known to be in the
+ * database and their space is reused: a record that does not fit before the
+ * end of the file leaves a wrap marker and goes to the start of the next lap,
+ * as long as that does not reach the checkpoint. Replay follows the records
+ * of the checkpoint's lap and the wraps after it; a record of an earlier lap,
+ * or one torn by a crash, fails validation and ends the replay
+ * appends reach the page cache, so they survive the process dying. With force
+ * every append is also written through to the device
+ * not thread-safe on its own, MessageWriteBehind serializes access
+ */
+public class MessageJournal implements Closeable {
+    static final int MAGIC = 0x4d4a4e32;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_HEADER_SIZE = 12;
+    static final int PAYLOAD_FIXED_SIZE = 4 + 1 + 4 + 8;
+    static final int WRAP = -1;
+
+    private static final byte NULL_POSTED_BY = 1;
+    private static final byte NULL_TIME_POSTED_EPOCH = 2;
+    private static final byte NULL_MESSAGE_TEXT = 4;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final boolean force;
+    private final CRC32 crc = new CRC32();
+    private int lap;
+    private int position;
+    private int checkpointLap;
+    private int checkpoint;
+
+    public MessageJournal(Path path, int capacity, boolean force) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(capacity, channel.size()));
+        this.force = force;
+        if (buffer.getInt(0) == MAGIC) {
+            long mark = buffer.getLong(8);
+            checkpointLap = lap(mark);
+            checkpoint = offset(mark);
+        } else {
+            checkpointLap = 1;
+            checkpoint = HEADER_SIZE;
+            buffer.putLong(8, mark(checkpointLap, checkpoint));
+            buffer.putInt(0, MAGIC);
+        }
+        lap = checkpointLap;
+        position = checkpoint;
+    }
+
+    /**
+     * feeds every record after the checkpoint to consumer, in append order, and
+     * moves the write position past them
+     * 
+     * @return the mark after the last replayed record
+     */
+    public long replay(Consumer<Message> consumer) {
+        while (true) {
+            if (isWrap(position)) {
+                lap++;
+                position = HEADER_SIZE;
+            }
+            Message message = read(position);
+            if (message == null) {
+                return mark(lap, position);
+            }
+            consumer.accept(message);
+            position += RECORD_HEADER_SIZE + buffer.getInt(position + 4);
+        }
+    }
+
+    /**
+     * @return the mark after the appended record, or -1 when the journal has no
+     *         room left for it before the checkpoint
+     */
+    public long append(Message message) {
+        byte[] text = message.getMessageText() == null ? null
+                : message.getMessageText().getBytes(StandardCharsets.UTF_8);
+        int length = PAYLOAD_FIXED_SIZE + (text == null ? 0 : text.length);
+        int size = RECORD_HEADER_SIZE + length;
+        if (lap == checkpointLap && position + size > buffer.capacity()) {
+            // wraps, unless the start of the file is still needed
+            if (HEADER_SIZE + size > checkpoint) {
+                return -1;
+            }
+            if (position + RECORD_HEADER_SIZE <= buffer.capacity()) {
+                buffer.putInt(position + 4, WRAP);
+                buffer.putInt(position, lap);
+            }
+            lap++;
+            position = HEADER_SIZE;
+        } else if (lap != checkpointLap && position + size > checkpoint) {
+            return -1;
+        }
+        byte flags = 0;
+        if (message.getPostedBy() == null) {
+            flags |= NULL_POSTED_BY;
+        }
+        if (message.getTimePostedEpoch() == null) {
+            flags |= NULL_TIME_POSTED_EPOCH;
+        }
+        if (text == null) {
+            flags |= NULL_MESSAGE_TEXT;
+        }
+        ByteBuffer record = buffer.duplicate();
+        record.position(position + RECORD_HEADER_SIZE);
+        record.putInt(message.getMessageId());
+        record.put(flags);
+        record.putInt(message.getPostedBy() == null ? 0 : message.getPostedBy());
+        record.putLong(message.getTimePostedEpoch() == null ? 0 : message.getTimePostedEpoch());
+        if (text != null) {
+            record.put(text);
+        }
+        crc.reset();
+        crc.update(buffer.duplicate().position(position + RECORD_HEADER_SIZE).limit(position + size));
+        buffer.putInt(position + 8, (int) crc.getValue());
+        buffer.putInt(position + 4, length);
+        // the lap last, so a torn record never validates
+        buffer.putInt(position, lap);
+        if (force) {
+            buffer.force();
+        }
+        position += size;
+        return mark(lap, position);
+    }
+
+    /**
+     * records that everything before mark is in the database, releasing its
+     * space for appends
+     */
+    public void checkpoint(long mark) {
+        checkpointLap = lap(mark);
+        checkpoint = offset(mark);
+        buffer.putLong(8, mark);
+        if (force) {
+            buffer.force();
+        }
+    }
+
+    /**
+     * @return the number of bytes appended and not yet checkpointed
+     */
+    public long getUsed() {
+        if (lap == checkpointLap) {
+            return position - checkpoint;
+        }
+        return (long) buffer.capacity() - checkpoint + position - HEADER_SIZE;
+    }
+
+    public int getCapacity() {
+        return buffer.capacity();
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    /**
+     * whether the record at offset is the wrap marker of the current lap, or
+     * there is no room left for a record header
+     */
+    private boolean isWrap(int offset) {
+        return offset + RECORD_HEADER_SIZE > buffer.capacity()
+                || buffer.getInt(offset) == lap && buffer.getInt(offset + 4) == WRAP;
+    }
+
+    /**
+     * @return the valid record of the current lap at offset, or null
+     */
+    private Message read(int offset) {
+        if (offset + RECORD_HEADER_SIZE + PAYLOAD_FIXED_SIZE > buffer.capacity() || buffer.getInt(offset) != lap) {
+            return null;
+        }
+        int length = buffer.getInt(offset + 4);
+        if (length < PAYLOAD_FIXED_SIZE || offset + RECORD_HEADER_SIZE + length > buffer.capacity()) {
+            return null;
+        }
+        ByteBuffer payload = buffer.duplicate().position(offset + RECORD_HEADER_SIZE)
+                .limit(offset + RECORD_HEADER_SIZE + length);
+        crc.reset();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != buffer.getInt(offset + 8)) {
+            return null;
+        }
+        int messageId = payload.getInt();
+        byte flags = payload.get();
+        int postedBy = payload.getInt();
+        long timePostedEpoch = payload.getLong();
+        byte[] text = new byte[payload.remaining()];
+        payload.get(text);
+        return new Message(messageId,
+                (flags & NULL_POSTED_BY) != 0 ? null : postedBy,
+                (flags & NULL_MESSAGE_TEXT) != 0 ? null : new String(text, StandardCharsets.UTF_8),
+                (flags & NULL_TIME_POSTED_EPOCH) != 0 ? null : timePostedEpoch);
+    }
+
+    private static long mark(int lap, int offset) {
+        return (long) lap << 32 | offset;
+    }
+
+    private static int lap(long mark) {
+        return (int) (mark >>> 32);
+    }
+
+    private static int offset(long mark) {
+        return (int) mark;
+    }
+}
@@ -0,0 +1,422 @@
+package com.example.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceException;
+import javax.persistence.Query;
+
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.query.NativeQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.entity.Message;
+import com.example.feed.MessageEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * opt-in write-behind persistence of created messages
+ * write assigns the message an id from the entity's own message_seq generator,
+ * whose pooled optimizer hands out ids from blocks reserved in memory, appends
+ * it to the MessageJournal and returns at once. A single background thread
+ * takes everything appended since its last round and inserts it with one
+ * multi-row MERGE in one transaction (group commit), then moves the journal
+ * checkpoint past it, which frees that space of the ring for appends. Whatever was acknowledged but not yet checkpointed is
+ * replayed into the database on startup; MERGE makes inserting a record twice
+ * harmless
+ * the CREATED event of a message is published once its group commit is done.
+ * Records the database refuses, e.g. for an account that no longer exists,
+ * are dropped and published as DELETED instead, so anyone who saw the message
+ * while it was pending learns that it is gone
+ * a batch that keeps failing for any other reason is retried
+ * app.write-behind.max-retries times, then every message of it is tried once
+ * on its own and those that still fail are appended to the dead-letter
+ * journal at app.write-behind.dead-letter-file, published as DELETED, and no
+ * longer hold up the queue
+ * acknowledged messages stay readable by id until they are flushed, and
+ * awaitFlushed lets readers of lists and writers of existing rows catch up
+ * first, for at most app.write-behind.await-timeout-ms
+ * published as write.behind.pending, write.behind.batch.size,
+ * write.behind.journal.full, write.behind.dropped and write.behind.dead.lettered
+ */
+@Component
+@ConditionalOnProperty(name = "app.write-behind.enabled", havingValue = "true")
+@DependsOnDatabaseInitialization
+public class MessageWriteBehind {
+    private static final long RETRY_DELAY_MILLIS = 1000;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    final MessageJournal journal;
+    final MessageJournal deadLetters;
+    final SessionFactoryImplementor sessionFactory;
+    final IdentifierGenerator idGenerator;
+    final TransactionTemplate transactionTemplate;
+    final int batchSize;
+    final int maxRetries;
+    final long awaitTimeoutMillis;
+    final ApplicationEventPublisher eventPublisher;
+    final ConcurrentHashMap<Integer, Message> pending = new ConcurrentHashMap<>();
+    final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    final Thread worker;
+    final Counter journalFull;
+    final Counter dropped;
+    final Counter deadLettered;
+    final DistributionSummary batchSizes;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    long appended;
+    volatile long flushed;
+    volatile boolean closed;
+
+    @Autowired
+    public MessageWriteBehind(EntityManagerFactory entityManagerFactory, TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry, ApplicationEventPublisher eventPublisher,
+            @Value("${app.write-behind.journal-file}") Path journalFile,
+            @Value("${app.write-behind.dead-letter-file}") Path deadLetterFile,
+            @Value("${app.write-behind.journal-size-mb}") int journalSizeMb,
+            @Value("${app.write-behind.force}") boolean force,
+            @Value("${app.write-behind.batch-size}") int batchSize,
+            @Value("${app.write-behind.max-retries}") int maxRetries,
+            @Value("${app.write-behind.await-timeout-ms}") long awaitTimeoutMillis) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.idGenerator = sessionFactory.getMetamodel().entityPersister(Message.class).getIdentifierGenerator();
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+        this.maxRetries = maxRetries;
+        this.awaitTimeoutMillis = awaitTimeoutMillis;
+        try {
+            this.journal = new MessageJournal(journalFile, journalSizeMb << 20, force);
+            this.deadLetters = new MessageJournal(deadLetterFile, journalSizeMb << 20, force);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // dead letters are never checkpointed, appends go after the ones kept from earlier runs
+        deadLetters.replay(message -> {
+        });
+        this.worker = new Thread(this::run, "write-behind");
+        this.worker.setDaemon(true);
+        Gauge.builder("write.behind.pending", pending, ConcurrentHashMap::size)
+                .description("acknowledged messages not yet in the database")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("write.behind.batch.size")
+                .description("messages inserted per group commit")
+                .register(meterRegistry);
+        this.journalFull = Counter.builder("write.behind.journal.full")
+                .description("messages saved synchronously because the journal had no room")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("write.behind.dropped")
+                .description("journaled messages the database refused")
+                .register(meterRegistry);
+        this.deadLettered = Counter.builder("write.behind.dead.lettered")
+                .description("journaled messages moved to the dead-letter journal after failing every retry")
+                .register(meterRegistry);
+    }
+
+    /**
+     * inserts whatever the journal holds past its checkpoint, then starts the
+     * group commit thread. Nothing is published for replayed messages, they
+     * were acknowledged by an earlier run
+     */
+    @PostConstruct
+    public void replay() {
+        List<Message> messages = new ArrayList<>();
+        long end = journal.replay(messages::add);
+        for (int from = 0; from < messages.size(); from += batchSize) {
+            insert(messages.subList(from, Math.min(messages.size(), from + batchSize)));
+        }
+        journal.checkpoint(end);
+        worker.start();
+    }
+
+    /**
+     * assigns message an id and journals it
+     * 
+     * @return a copy of message with its id, or null when the journal is closed
+     *         or full and the caller has to save the message itself
+     */
+    public Message write(Message message) {
+        if (closed) {
+            return null;
+        }
+        // may query the sequence, so it is drawn before taking the journal
+        Message journaled = new Message(nextId(), message.getPostedBy(), message.getMessageText(),
+                message.getTimePostedEpoch());
+        synchronized (journal) {
+            if (closed) {
+                return null;
+            }
+            long end = journal.append(journaled);
+            if (end < 0) {
+                journalFull.increment();
+                return null;
+            }
+            pending.put(journaled.getMessageId(), journaled);
+            queue.add(new Entry(journaled, end, ++appended));
+            return new Message(journaled.getMessageId(), journaled.getPostedBy(), journaled.getMessageText(),
+                    journaled.getTimePostedEpoch());
+        }
+    }
+
+    /**
+     * @return the acknowledged message message_id while it is not yet in the
+     *         database, otherwise null
+     */
+    public Message findPending(int message_id) {
+        return pending.get(message_id);
+    }
+
+    public boolean isPending(int message_id) {
+        return pending.containsKey(message_id);
+    }
+
+    public boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    /**
+     * waits until every message acknowledged before the call is in the
+     * database, for at most app.write-behind.await-timeout-ms
+     * 
+     * @return false if the wait timed out
+     */
+    public boolean awaitFlushed() {
+        return awaitFlushed(awaitTimeoutMillis);
+    }
+
+    /**
+     * @return false if not everything was flushed within timeoutMillis
+     */
+    boolean awaitFlushed(long timeoutMillis) {
+        long target;
+        synchronized (journal) {
+            target = appended;
+        }
+        long deadline = System.currentTimeMillis() + Math.min(timeoutMillis, Long.MAX_VALUE / 2);
+        synchronized (this) {
+            while (flushed < target && worker.isAlive()) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    wait(Math.min(remaining, RETRY_DELAY_MILLIS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return flushed >= target;
+        }
+    }
+
+    /**
+     * flushes what is pending for up to SHUTDOWN_TIMEOUT_SECONDS. Anything left
+     * stays in the journal for the next start
+     */
+    @PreDestroy
+    public void shutdown() throws IOException, InterruptedException {
+        synchronized (journal) {
+            closed = true;
+        }
+        awaitFlushed(TimeUnit.SECONDS.toMillis(SHUTDOWN_TIMEOUT_SECONDS));
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(SHUTDOWN_TIMEOUT_SECONDS));
+        synchronized (journal) {
+            journal.close();
+            deadLetters.close();
+        }
+    }
+
+    private void run() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        int failures = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                if (batch.isEmpty()) {
+                    batch.add(queue.take());
+                    queue.drainTo(batch, batchSize - 1);
+                }
+                List<Message> messages = new ArrayList<>(batch.size());
+                for (Entry entry : batch) {
+                    messages.add(entry.message);
+                }
+                Set<Message> refused;
+                try {
+                    refused = insert(messages);
+                } catch (RuntimeException e) {
+                    if (++failures <= maxRetries) {
+                        throw e;
+                    }
+                    refused = deadLetter(messages);
+                }
+                failures = 0;
+                Entry last = batch.get(batch.size() - 1);
+                synchronized (journal) {
+                    journal.checkpoint(last.end);
+                }
+                try {
+                    for (Entry entry : batch) {
+                        eventPublisher.publishEvent(refused.contains(entry.message)
+                                ? MessageEvent.deleted(copyOf(entry.message))
+                                : MessageEvent.created(copyOf(entry.message)));
+                    }
+                } finally {
+                    for (Entry entry : batch) {
+                        pending.remove(entry.message.getMessageId(), entry.message);
+                    }
+                    batchSizes.record(batch.size());
+                    batch.clear();
+                    synchronized (this) {
+                        flushed = last.sequence;
+                        notifyAll();
+                    }
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                // the database is unavailable: keep the batch and try again
+                try {
+                    Thread.sleep(RETRY_DELAY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * merges messages in one transaction. When the database refuses the batch
+     * every message is retried on its own and the refused ones are dropped
+     * 
+     * @return the dropped messages
+     */
+    Set<Message> insert(List<Message> messages) {
+        Set<Message> refused = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (messages.isEmpty()) {
+            return refused;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> merge(messages));
+        } catch (PersistenceException e) {
+            if (!(e.getCause() instanceof ConstraintViolationException)) {
+                throw e;
+            }
+            for (Message message : messages) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> merge(List.of(message)));
+                } catch (PersistenceException refusedException) {
+                    if (!(refusedException.getCause() instanceof ConstraintViolationException)) {
+                        throw refusedException;
+                    }
+                    dropped.increment();
+                    refused.add(message);
+                }
+            }
+        }
+        return refused;
+    }
+
+    /**
+     * tries every message of a batch that failed every retry on its own, and
+     * appends those that still fail to the dead-letter journal. A message the
+     * dead-letter journal has no room for is lost, it is still counted
+     * 
+     * @return the messages that were not inserted
+     */
+    private Set<Message> deadLetter(List<Message> messages) {
+        Set<Message> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Message message : messages) {
+            try {
+                failed.addAll(insert(List.of(message)));
+            } catch (RuntimeException e) {
+                synchronized (journal) {
+                    deadLetters.append(message);
+                }
+                deadLettered.increment();
+                failed.add(message);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * a single MERGE statement for all of messages. It is registered as
+     * touching Message only, so hibernate evicts the Message region and the
+     * cached queries on the message table and leaves accounts alone
+     */
+    private void merge(List<Message> messages) {
+        StringBuilder sql = new StringBuilder(
+                "merge into message (message_id, posted_by, message_text, time_posted_epoch) key (message_id) values ");
+        for (int i = 0; i < messages.size(); i++) {
+            sql.append(i == 0 ? "(?, ?, ?, ?)" : ", (?, ?, ?, ?)");
+        }
+        Query query = entityManager.createNativeQuery(sql.toString());
+        query.unwrap(NativeQuery.class).addSynchronizedEntityClass(Message.class);
+        int parameter = 1;
+        for (Message message : messages) {
+            query.setParameter(parameter++, message.getMessageId());
+            query.setParameter(parameter++, message.getPostedBy());
+            query.setParameter(parameter++, message.getMessageText());
+            query.setParameter(parameter++, message.getTimePostedEpoch());
+        }
+        query.executeUpdate();
+    }
+
+    /**
+     * the sequence is only queried once the optimizer's block is used up
+     */
+    private int nextId() {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            return (Integer) idGenerator.generate((SharedSessionContractImplementor) session, null);
+        }
+    }
+
+    private static Message copyOf(Message message) {
+        return new Message(message.getMessageId(), message.getPostedBy(), message.getMessageText(),
+                message.getTimePostedEpoch());
+    }
+
+    static final class Entry {
+        final Message message;
+        final long end;
+        final long sequence;
+
+        Entry(Message message, long end, long sequence) {
+            this.message = message;
+            this.end = end;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.json;
+
+import java.io.IOException;
+
+import org.springframework.boot.jackson.JsonComponent;
+
+import com.example.entity.Account;
+import com.example.entity.Message;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+/**
+ * hand-written serializers for the entities returned by the controllers,
+ * registered with spring boot's ObjectMapper. They replace the bean
+ * serializer, which introspects getters and boxes through reflection for
+ * every element of a list, with direct calls on the generator. Field names are
+ * encoded once and copied into the generator's buffer, which jackson recycles
+ * across responses, and the generator writes straight to the response stream
+ * the output is byte for byte the one of the default bean serializer: fields
+ * in declaration order, nulls written as null
+ */
+@JsonComponent
+public class EntityJsonSerializers {
+
+    public static class MessageSerializer extends JsonSerializer<Message> {
+        private static final SerializableString MESSAGE_ID = new SerializedString("messageId");
+        private static final SerializableString POSTED_BY = new SerializedString("postedBy");
+        private static final SerializableString MESSAGE_TEXT = new SerializedString("messageText");
+        private static final SerializableString TIME_POSTED_EPOCH = new SerializedString("timePostedEpoch");
+
+        @Override
+        public void serialize(Message message, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeStartObject(message);
+            generator.writeFieldName(MESSAGE_ID);
+            writeNumber(generator, message.getMessageId());
+            generator.writeFieldName(POSTED_BY);
+            writeNumber(generator, message.getPostedBy());
+            generator.writeFieldName(MESSAGE_TEXT);
+            generator.writeString(message.getMessageText());
+            generator.writeFieldName(TIME_POSTED_EPOCH);
+            Long timePostedEpoch = message.getTimePostedEpoch();
+            if (timePostedEpoch == null) {
+                generator.writeNull();
+            } else {
+                generator.writeNumber(timePostedEpoch);
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    public static class AccountSerializer extends JsonSerializer<Account> {
+        private static final SerializableString ACCOUNT_ID = new SerializedString("accountId");
+        private static final SerializableString USERNAME = new SerializedString("username");
+        private static final SerializableString PASSWORD = new SerializedString("password");
+
+        @Override
+        public void serialize(Account account, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeStartObject(account);
+            generator.writeFieldName(ACCOUNT_ID);
+            writeNumber(generator, account.getAccountId());
+            generator.writeFieldName(USERNAME);
+            generator.writeString(account.getUsername());
+            generator.writeFieldName(PASSWORD);
+            generator.writeString(account.getPassword());
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * writeString already writes null for a null String, numbers need the check
+     */
+    private static void writeNumber(JsonGenerator generator, Integer value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value);
+        }
+    }
+}
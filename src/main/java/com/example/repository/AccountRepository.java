@@ -1,12 +1,50 @@
 package com.example.repository;
 
+import java.util.Collection;
+import java.util.List;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import com.example.entity.Account;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+
 public interface AccountRepository extends JpaRepository<Account, Integer> {
 
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     Account findByUsername(String username);
 
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     Account findByAccountId(Integer accountId);
+
+    /**
+     * @return the subset of accountIds that belong to an existing account
+     */
+    @Query("select a.accountId from Account a where a.accountId in :accountIds")
+    List<Integer> findExistingAccountIds(@Param("accountIds") Collection<Integer> accountIds);
+
+    /**
+     * keyset page over every account in accountId order, reading only the id and
+     * the username
+     * 
+     * @return pairs of accountId and username with accountId greater than after_id
+     */
+    @Query("select a.accountId, a.username from Account a where a.accountId > :after_id order by a.accountId")
+    List<Object[]> findIdentitiesAfter(@Param("after_id") int after_id, Pageable pageable);
+
+    /**
+     * replaces the stored password of account account_id in a single statement
+     * 
+     * @return number of rows updated. 0 if the account does not exist
+     */
+    @Modifying
+    @Query("update Account a set a.password = :password where a.accountId = :account_id")
+    int updatePasswordByAccountId(@Param("account_id") int account_id, @Param("password") String password);
 }
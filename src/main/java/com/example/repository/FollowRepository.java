@@ -0,0 +1,42 @@
+package com.example.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.entity.Follow;
+
+public interface FollowRepository extends JpaRepository<Follow, Follow.Key> {
+
+    /**
+     * @return the accounts following followee_id
+     */
+    @Query("select f.followerId from Follow f where f.followeeId = :followee_id")
+    List<Integer> findFollowerIds(@Param("followee_id") int followee_id);
+
+    /**
+     * @return the accounts follower_id follows
+     */
+    @Query("select f.followeeId from Follow f where f.followerId = :follower_id")
+    List<Integer> findFolloweeIds(@Param("follower_id") int follower_id);
+
+    long countByFolloweeId(int followee_id);
+
+    /**
+     * @return the accounts followed by at least min_followers accounts
+     */
+    @Query("select f.followeeId from Follow f group by f.followeeId having count(f) >= :min_followers")
+    List<Integer> findFolloweeIdsWithFollowers(@Param("min_followers") long min_followers);
+
+    /**
+     * @return number of rows deleted. 0 if follower_id did not follow followee_id
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from Follow f where f.followerId = :follower_id and f.followeeId = :followee_id")
+    int deleteFollow(@Param("follower_id") int follower_id, @Param("followee_id") int followee_id);
+}
@@ -1,15 +1,163 @@
 package com.example.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import com.example.entity.Message;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
 public interface MessageRepository extends JpaRepository<Message, Integer> {
+    String QUERY_CACHE_REGION = "message-queries";
 
     Message findByMessageId(int message_id);
 
+    /**
+     * cached in QUERY_CACHE_REGION, which writes through the returning
+     * statements below must evict
+     */
+    @QueryHints({ @QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = QUERY_CACHE_REGION) })
     List<Message> findByPostedBy(int account_id);
 
+    /**
+     * keyset page of messages with message_id strictly greater than message_id,
+     * in ascending message_id order. The size of the page is taken from pageable
+     */
+    List<Message> findByMessageIdGreaterThanOrderByMessageIdAsc(int message_id, Pageable pageable);
+
+    /**
+     * oldest-first page of the messages that are newer than the
+     * (time_posted_epoch, message_id) cursor, ordered by time_posted_epoch then
+     * message_id. Backed by message_time_idx, the leading >= bounds the index
+     * range scan
+     */
+    @Query("select m from Message m where m.timePostedEpoch >= :time_posted_epoch"
+            + " and (m.timePostedEpoch > :time_posted_epoch or m.messageId > :message_id)"
+            + " order by m.timePostedEpoch asc, m.messageId asc")
+    List<Message> findSince(@Param("time_posted_epoch") long time_posted_epoch,
+            @Param("message_id") int message_id, Pageable pageable);
+
+    /**
+     * keyset page of the messages posted by posted_by with message_id strictly
+     * greater than message_id, in ascending message_id order. Backed by
+     * message_posted_by_id_idx
+     */
+    List<Message> findByPostedByAndMessageIdGreaterThanOrderByMessageIdAsc(int posted_by, int message_id,
+            Pageable pageable);
+
+    /**
+     * newest-first page of the ids of the messages posted by any of posted_by
+     * with message_id strictly greater than message_id. Backed by
+     * message_posted_by_id_idx
+     */
+    @Query("select m.messageId from Message m where m.postedBy in :posted_by and m.messageId > :message_id"
+            + " order by m.messageId desc")
+    List<Integer> findIdsByPostedByInAfter(@Param("posted_by") Collection<Integer> posted_by,
+            @Param("message_id") int message_id, Pageable pageable);
+
+    /**
+     * newest-first page of the messages posted by any of posted_by with
+     * message_id strictly less than message_id
+     */
+    List<Message> findByPostedByInAndMessageIdLessThanOrderByMessageIdDesc(Collection<Integer> posted_by,
+            int message_id, Pageable pageable);
+
+    /**
+     * ids of the newest-first page of the messages posted by posted_by, ordered
+     * by time_posted_epoch then message_id. Answered from
+     * message_posted_by_time_idx alone
+     */
+    @Query("select m.messageId from Message m where m.postedBy = :posted_by"
+            + " order by m.timePostedEpoch desc, m.messageId desc")
+    List<Integer> findTimelineIdsByPostedBy(@Param("posted_by") int posted_by, Pageable pageable);
+
+    /**
+     * ids of the newest-first page of the messages posted by posted_by that are
+     * older than the (time_posted_epoch, message_id) cursor
+     */
+    @Query("select m.messageId from Message m where m.postedBy = :posted_by"
+            + " and (m.timePostedEpoch < :time_posted_epoch"
+            + " or (m.timePostedEpoch = :time_posted_epoch and m.messageId < :message_id))"
+            + " order by m.timePostedEpoch desc, m.messageId desc")
+    List<Integer> findTimelineIdsByPostedByBefore(@Param("posted_by") int posted_by,
+            @Param("time_posted_epoch") long time_posted_epoch, @Param("message_id") int message_id,
+            Pageable pageable);
+
+    /**
+     * oldest-first page of the messages posted by posted_by that are newer than
+     * the (time_posted_epoch, message_id) cursor
+     */
+    @Query("select m from Message m where m.postedBy = :posted_by"
+            + " and m.timePostedEpoch >= :time_posted_epoch"
+            + " and (m.timePostedEpoch > :time_posted_epoch or m.messageId > :message_id)"
+            + " order by m.timePostedEpoch asc, m.messageId asc")
+    List<Message> findTimelineByPostedBySince(@Param("posted_by") int posted_by,
+            @Param("time_posted_epoch") long time_posted_epoch, @Param("message_id") int message_id,
+            Pageable pageable);
+
+    /**
+     * replaces the text of message message_id in a single statement
+     * 
+     * @return number of rows updated. 0 if the message does not exist
+     */
+    @Modifying
+    @Query("update Message m set m.messageText = :message_text where m.messageId = :message_id")
+    int updateMessageTextByMessageId(@Param("message_id") int message_id,
+            @Param("message_text") String message_text);
+
+    /**
+     * updateMessageTextByMessageId that also returns what it left in the row,
+     * still in a single statement, through an H2 data change delta table.
+     * Hibernate sees a query, not a write, and evicts nothing for it
+     * 
+     * @return posted_by and time_posted_epoch of the updated row. Empty if the
+     *         message does not exist
+     */
+    @Query(value = "select posted_by, time_posted_epoch from final table"
+            + " (update message set message_text = :message_text where message_id = :message_id)", nativeQuery = true)
+    List<Object[]> updateMessageTextReturning(@Param("message_id") int message_id,
+            @Param("message_text") String message_text);
+
+    /**
+     * deletes message message_id in a single statement without loading it
+     * 
+     * @return number of rows deleted. 0 if the message does not exist
+     */
+    @Modifying
+    @Query("delete from Message m where m.messageId = :message_id")
+    int deleteByMessageId(@Param("message_id") int message_id);
+
+    /**
+     * deleteByMessageId that also returns the deleted row, still in a single
+     * statement, through an H2 data change delta table. Hibernate sees a query,
+     * not a write, and evicts nothing for it
+     * 
+     * @return posted_by, message_text and time_posted_epoch of the deleted row.
+     *         Empty if the message does not exist
+     */
+    @Query(value = "select posted_by, message_text, time_posted_epoch from old table"
+            + " (delete from message where message_id = :message_id)", nativeQuery = true)
+    List<Object[]> deleteByMessageIdReturning(@Param("message_id") int message_id);
+
+    /**
+     * forward-only stream over every message in ascending message_id order. Must
+     * be consumed inside a transaction and closed afterwards
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select m from Message m order by m.messageId")
+    Stream<Message> streamAll();
+
 }
@@ -0,0 +1,145 @@
+package com.example.search;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.entity.Message;
+import com.example.feed.MessageEvent;
+import com.example.service.MessageService;
+
+/**
+ * in-memory Lucene index over message_text. Built from the message table at
+ * startup and kept up to date from MessageEvents, so a search costs an index
+ * lookup instead of a scan of the table
+ * results are ranked by BM25. Searchers are reopened lazily, on the first
+ * search after a change
+ */
+@Component
+@DependsOnDatabaseInitialization
+public class MessageSearchIndex {
+    /**
+     * deepest result that can be reached with offset + limit
+     */
+    public static final int MAX_RESULTS = 10_000;
+
+    static final String ID = "id";
+    static final String MESSAGE_ID = "messageId";
+    static final String TEXT = "text";
+
+    MessageService messageService;
+    final Analyzer analyzer = new StandardAnalyzer();
+    final IndexWriter indexWriter;
+    final SearcherManager searcherManager;
+    final AtomicBoolean changed = new AtomicBoolean();
+
+    @Autowired
+    public MessageSearchIndex(MessageService messageService) throws IOException {
+        this.messageService = messageService;
+        this.indexWriter = new IndexWriter(new ByteBuffersDirectory(), new IndexWriterConfig(analyzer));
+        this.searcherManager = new SearcherManager(indexWriter, null);
+    }
+
+    /**
+     * replaces the whole index with the current content of the message table
+     */
+    @PostConstruct
+    public void rebuild() throws IOException {
+        indexWriter.deleteAll();
+        messageService.streamAll(message -> {
+            try {
+                indexWriter.addDocument(toDocument(message));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        searcherManager.maybeRefreshBlocking();
+    }
+
+    /**
+     * runs after the publishing transaction commits, or immediately when there is
+     * none
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMessageEvent(MessageEvent event) throws IOException {
+        Message message = event.getMessage();
+        Term id = new Term(ID, String.valueOf(message.getMessageId()));
+        if (event.getType() == MessageEvent.Type.DELETED) {
+            indexWriter.deleteDocuments(id);
+        } else {
+            indexWriter.updateDocument(id, toDocument(message));
+        }
+        changed.set(true);
+    }
+
+    /**
+     * ranks the messages whose text matches text, best match first, and returns
+     * at most limit of them after skipping offset. Every term must match; quotes,
+     * - and | are understood as in Lucene's simple query syntax
+     */
+    public List<Message> search(String text, int offset, int limit) throws IOException {
+        if (offset >= MAX_RESULTS) {
+            return List.of();
+        }
+        if (changed.getAndSet(false)) {
+            searcherManager.maybeRefreshBlocking();
+        }
+        SimpleQueryParser parser = new SimpleQueryParser(analyzer, TEXT);
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        Query query = parser.parse(text);
+        List<Integer> message_ids = new ArrayList<>();
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            TopDocs topDocs = searcher.search(query, Math.min(offset + limit, MAX_RESULTS));
+            ScoreDoc[] hits = topDocs.scoreDocs;
+            for (int i = offset; i < hits.length; i++) {
+                message_ids.add(searcher.doc(hits[i].doc).getField(MESSAGE_ID).numericValue().intValue());
+            }
+        } finally {
+            searcherManager.release(searcher);
+        }
+        return messageService.findAllByMessageId(message_ids);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        indexWriter.close();
+    }
+
+    private static Document toDocument(Message message) {
+        Document document = new Document();
+        document.add(new StringField(ID, String.valueOf(message.getMessageId()), Field.Store.NO));
+        document.add(new StoredField(MESSAGE_ID, message.getMessageId()));
+        document.add(new TextField(TEXT, message.getMessageText(), Field.Store.NO));
+        return document;
+    }
+}
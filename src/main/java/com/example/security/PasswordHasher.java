@@ -0,0 +1,100 @@
+package com.example.security;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/**
+ * hashes and verifies passwords on a dedicated bounded pool so the cost of
+ * bcrypt never runs on request threads. When every hashing thread is busy and
+ * the queue is full new work is rejected with RejectedExecutionException
+ * instead of piling up
+ * passwords are stored as {id}encoded. New passwords are encoded with bcrypt at
+ * app.security.bcrypt.strength; {noop} and untagged values are plaintext rows
+ * written before hashing, which still verify and report upgradeEncoding
+ * latency is published as the password.hash timer tagged with operation, the
+ * pool as executor metrics named password.hash
+ */
+@Component
+public class PasswordHasher {
+
+    final PasswordEncoder passwordEncoder;
+    final ThreadPoolExecutor pool;
+    final ExecutorService executor;
+    final Timer encodeTimer;
+    final Timer matchesTimer;
+
+    @Autowired
+    @SuppressWarnings("deprecation")
+    public PasswordHasher(MeterRegistry meterRegistry,
+            @Value("${app.security.bcrypt.strength}") int strength,
+            @Value("${app.security.hash-threads}") int threads,
+            @Value("${app.security.hash-queue-capacity}") int queueCapacity) {
+        DelegatingPasswordEncoder delegatingPasswordEncoder = new DelegatingPasswordEncoder("bcrypt",
+                Map.of("bcrypt", new BCryptPasswordEncoder(strength), "noop", NoOpPasswordEncoder.getInstance()));
+        delegatingPasswordEncoder.setDefaultPasswordEncoderForMatches(NoOpPasswordEncoder.getInstance());
+        this.passwordEncoder = delegatingPasswordEncoder;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "hash-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "password.hash");
+        this.encodeTimer = Timer.builder("password.hash").tag("operation", "encode")
+                .description("time spent hashing a password")
+                .register(meterRegistry);
+        this.matchesTimer = Timer.builder("password.hash").tag("operation", "matches")
+                .description("time spent verifying a password against its hash")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @throws RejectedExecutionException when the hashing pool is saturated
+     */
+    public CompletableFuture<String> encode(String rawPassword) {
+        return CompletableFuture.supplyAsync(() -> encodeTimer.record(() -> passwordEncoder.encode(rawPassword)),
+                executor);
+    }
+
+    /**
+     * @throws RejectedExecutionException when the hashing pool is saturated
+     */
+    public CompletableFuture<Boolean> matches(String rawPassword, String encodedPassword) {
+        return CompletableFuture.supplyAsync(
+                () -> matchesTimer.record(() -> passwordEncoder.matches(rawPassword, encodedPassword)), executor);
+    }
+
+    /**
+     * true when encodedPassword is plaintext or was hashed with other settings
+     * than the current ones, and should be encoded again
+     */
+    public boolean upgradeEncoding(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
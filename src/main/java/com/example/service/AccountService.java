@@ -1,31 +1,290 @@
 package com.example.service;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.example.cache.BloomFilter;
+import com.example.cache.BoundedCache;
 import com.example.entity.Account;
+import com.example.exception.DuplicateUsernameException;
 import com.example.repository.AccountRepository;
 
+/**
+ * account lookups and writes in front of AccountRepository
+ * every username and accountId in the account table is kept in a Bloom filter,
+ * so lookups of accounts that do not exist are answered without a query. The
+ * filters are built from the table at startup and fed with the accounts
+ * written through this service. Rows inserted any other way are found once
+ * the filters are rebuilt, every app.accounts.filter.rebuild-interval-seconds
+ * or by a call to rebuildExistenceFilters
+ */
 @Service
+@DependsOnDatabaseInitialization
 public class AccountService {
+    static final int USERNAME_LOCK_STRIPES = 64;
+    static final int REBUILD_PAGE_SIZE = 10_000;
 
     AccountRepository accountRepository;
+    BoundedCache<String, Account> usernameCache;
+    BoundedCache<Integer, Account> accountIdCache;
+    BloomFilter usernameFilter;
+    BloomFilter accountIdFilter;
+    final Lock[] usernameLocks = new Lock[USERNAME_LOCK_STRIPES];
+    final long rebuildIntervalSeconds;
+    ScheduledExecutorService rebuildScheduler;
 
     @Autowired
-    public AccountService(AccountRepository accountRepository) {
+    public AccountService(AccountRepository accountRepository,
+            @Value("${app.cache.account.max-size}") int cacheMaxSize,
+            @Value("${app.cache.account.ttl-seconds}") long cacheTtlSeconds,
+            @Value("${app.accounts.filter.expected-accounts}") long expectedAccounts,
+            @Value("${app.accounts.filter.false-positive-probability}") double falsePositiveProbability,
+            @Value("${app.accounts.filter.rebuild-interval-seconds}") long rebuildIntervalSeconds) {
         this.accountRepository = accountRepository;
+        this.usernameCache = new BoundedCache<>(cacheMaxSize, Duration.ofSeconds(cacheTtlSeconds));
+        this.accountIdCache = new BoundedCache<>(cacheMaxSize, Duration.ofSeconds(cacheTtlSeconds));
+        this.usernameFilter = new BloomFilter(expectedAccounts, falsePositiveProbability);
+        this.accountIdFilter = new BloomFilter(expectedAccounts, falsePositiveProbability);
+        for (int i = 0; i < usernameLocks.length; i++) {
+            usernameLocks[i] = new ReentrantLock();
+        }
+        this.rebuildIntervalSeconds = rebuildIntervalSeconds;
+    }
+
+    /**
+     * builds the existence filters and schedules their periodic rebuild. A
+     * rebuild-interval-seconds of 0 disables the schedule
+     */
+    @PostConstruct
+    public void startExistenceFilters() {
+        rebuildExistenceFilters();
+        if (rebuildIntervalSeconds > 0) {
+            rebuildScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "account-filter-rebuild");
+                thread.setDaemon(true);
+                return thread;
+            });
+            rebuildScheduler.scheduleWithFixedDelay(this::rebuildExistenceFilters, rebuildIntervalSeconds,
+                    rebuildIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stopExistenceFilters() {
+        if (rebuildScheduler != null) {
+            rebuildScheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * refills both existence filters from the account table. The new filters
+     * are built off to the side and swapped in once complete, lookups keep
+     * using the old ones meanwhile
+     */
+    public void rebuildExistenceFilters() {
+        usernameFilter.rebuild(usernames -> accountIdFilter.rebuild(accountIds -> {
+            int afterId = Integer.MIN_VALUE;
+            List<Object[]> page;
+            do {
+                page = accountRepository.findIdentitiesAfter(afterId, PageRequest.of(0, REBUILD_PAGE_SIZE));
+                for (Object[] identity : page) {
+                    afterId = (Integer) identity[0];
+                    accountIds.put(afterId);
+                    usernames.put((String) identity[1]);
+                }
+            } while (page.size() == REBUILD_PAGE_SIZE);
+        }));
     }
 
+    /**
+     * read-through lookup by username. Usernames the filter rules out are
+     * answered without a query. Callers always receive their own copy
+     */
     public Account findByUsername(String username) {
-        return accountRepository.findByUsername(username);
+        if (username == null || !usernameFilter.mightContain(username)) {
+            return null;
+        }
+        Account cached = usernameCache.get(username);
+        if (cached != null) {
+            return copyOf(cached);
+        }
+        Account account = accountRepository.findByUsername(username);
+        if (account != null) {
+            cache(account);
+        } else {
+            usernameFilter.recordFalsePositive();
+        }
+        return account;
     }
 
+    /**
+     * read-through lookup by accountId. Ids the filter rules out are answered
+     * without a query. Callers always receive their own copy
+     */
     public Account findByAccountId(Integer accountId) {
-        return accountRepository.findByAccountId(accountId);
+        if (accountId == null || !accountIdFilter.mightContain(accountId)) {
+            return null;
+        }
+        Account cached = accountIdCache.get(accountId);
+        if (cached != null) {
+            return copyOf(cached);
+        }
+        Account account = accountRepository.findByAccountId(accountId);
+        if (account != null) {
+            cache(account);
+        } else {
+            accountIdFilter.recordFalsePositive();
+        }
+        return account;
+    }
+
+    /**
+     * resolves which of accountIds belong to an existing account. Ids the filter
+     * rules out are dropped and cached accounts are answered from the cache, the
+     * rest with a single query
+     * 
+     * @return the existing subset of accountIds
+     */
+    public Set<Integer> findExistingAccountIds(Collection<Integer> accountIds) {
+        Set<Integer> existing = new HashSet<>();
+        Set<Integer> unknown = new HashSet<>();
+        for (Integer accountId : accountIds) {
+            if (accountId == null || !accountIdFilter.mightContain(accountId)) {
+                continue;
+            }
+            if (accountIdCache.get(accountId) != null) {
+                existing.add(accountId);
+            } else {
+                unknown.add(accountId);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            List<Integer> found = accountRepository.findExistingAccountIds(unknown);
+            existing.addAll(found);
+            for (int i = unknown.size() - found.size(); i > 0; i--) {
+                accountIdFilter.recordFalsePositive();
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * true when username is known to be taken without asking the database. false
+     * means unknown, not free
+     */
+    public boolean isCachedUsername(String username) {
+        return usernameCache.get(username) != null;
+    }
+
+    /**
+     * inserts account with a single statement, relying on the unique constraint
+     * on username instead of looking it up first. Only the insert is serialized
+     * per username, on a lock stripe, so a registration that waited for another
+     * one of its name is rejected from the cache without reaching the database
+     * a username taken by a row that is not cached costs the failed insert. The
+     * row is then read into the cache, so retries of that name are rejected
+     * before their password is hashed
+     * 
+     * @return the registered account
+     * @throws DuplicateUsernameException when username is already taken
+     */
+    public Account register(Account account) throws DuplicateUsernameException {
+        Account saved;
+        Lock lock = usernameLocks[Math.floorMod(account.getUsername().hashCode(), usernameLocks.length)];
+        lock.lock();
+        try {
+            if (isCachedUsername(account.getUsername())) {
+                throw new DuplicateUsernameException();
+            }
+            saved = accountRepository.saveAndFlush(account);
+            remember(saved);
+        } catch (DataIntegrityViolationException e) {
+            saved = null;
+        } finally {
+            lock.unlock();
+        }
+        if (saved == null) {
+            findByUsername(account.getUsername());
+            throw new DuplicateUsernameException();
+        }
+        return saved;
     }
 
     public Account save(Account account) {
-        return accountRepository.save(account);
+        Account saved = accountRepository.save(account);
+        remember(saved);
+        return saved;
+    }
+
+    /**
+     * replaces the stored password of account without loading it first and
+     * drops it from the caches
+     * 
+     * @return number of rows updated. 0 if the account does not exist
+     */
+    @Transactional
+    public int updatePassword(Account account, String password) {
+        int updated = accountRepository.updatePasswordByAccountId(account.getAccountId(), password);
+        accountIdCache.invalidate(account.getAccountId());
+        usernameCache.invalidate(account.getUsername());
+        return updated;
+    }
+
+    public BoundedCache<String, Account> getUsernameCache() {
+        return usernameCache;
+    }
+
+    public BoundedCache<Integer, Account> getAccountIdCache() {
+        return accountIdCache;
+    }
+
+    public BloomFilter getUsernameFilter() {
+        return usernameFilter;
+    }
+
+    public BloomFilter getAccountIdFilter() {
+        return accountIdFilter;
+    }
+
+    /**
+     * adds a written account to the existence filters and the caches
+     */
+    private void remember(Account account) {
+        usernameFilter.put(account.getUsername());
+        accountIdFilter.put(account.getAccountId());
+        cache(account);
+    }
+
+    /**
+     * stores one copy of account under both of its keys
+     */
+    private void cache(Account account) {
+        Account copy = copyOf(account);
+        usernameCache.put(copy.getUsername(), copy);
+        accountIdCache.put(copy.getAccountId(), copy);
+    }
+
+    private static Account copyOf(Account account) {
+        return new Account(account.getAccountId(), account.getUsername(), account.getPassword());
     }
 
 }
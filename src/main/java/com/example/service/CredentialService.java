@@ -0,0 +1,138 @@
+package com.example.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.cache.BoundedCache;
+import com.example.entity.Account;
+import com.example.exception.AccountDoesNotExistException;
+import com.example.exception.DuplicateUsernameException;
+import com.example.exception.IncorrectPasswordException;
+import com.example.security.PasswordHasher;
+
+/**
+ * registration and login against hashed passwords. Hashing runs on the
+ * PasswordHasher pool while the caller waits for it, holding no connection.
+ * The database work then runs on the caller's thread, so the pool only ever
+ * hashes. A saturated pool rejects the hash with RejectedExecutionException
+ * a successful login is remembered for a short time as an HMAC of the username,
+ * the password and the stored hash under a key that never leaves the process.
+ * Repeated logins with the same credentials are answered from that cache
+ * without hashing, and any change of the stored hash invalidates the entry
+ * plaintext rows are rehashed on their first successful login
+ * returned accounts carry the password the client submitted, never the hash
+ */
+@Service
+public class CredentialService {
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    AccountService accountService;
+    PasswordHasher passwordHasher;
+    BoundedCache<String, byte[]> verifiedCredentials;
+    final SecretKeySpec digestKey;
+
+    @Autowired
+    public CredentialService(AccountService accountService, PasswordHasher passwordHasher,
+            @Value("${app.security.verified-cache.max-size}") int cacheMaxSize,
+            @Value("${app.security.verified-cache.ttl-seconds}") long cacheTtlSeconds) {
+        this.accountService = accountService;
+        this.passwordHasher = passwordHasher;
+        this.verifiedCredentials = new BoundedCache<>(cacheMaxSize, Duration.ofSeconds(cacheTtlSeconds));
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.digestKey = new SecretKeySpec(key, HMAC_ALGORITHM);
+    }
+
+    /**
+     * hashes the password of account and registers it. A username already known
+     * to be taken is rejected before hashing
+     *
+     * @return the registered account
+     * @throws DuplicateUsernameException when username is taken
+     */
+    public Account register(Account account) throws DuplicateUsernameException {
+        if (accountService.isCachedUsername(account.getUsername())) {
+            throw new DuplicateUsernameException();
+        }
+        String encodedPassword = await(passwordHasher.encode(account.getPassword()));
+        Account registered = accountService.register(new Account(account.getUsername(), encodedPassword));
+        return new Account(registered.getAccountId(), registered.getUsername(), account.getPassword());
+    }
+
+    /**
+     * verifies password against the stored hash of username
+     *
+     * @return the account of username
+     * @throws AccountDoesNotExistException when account does not exist
+     * @throws IncorrectPasswordException   when password does not match
+     */
+    public Account login(String username, String password)
+            throws AccountDoesNotExistException, IncorrectPasswordException {
+        Account account = accountService.findByUsername(username);
+        if (account == null) {
+            throw new AccountDoesNotExistException();
+        }
+        if (password == null) {
+            throw new IncorrectPasswordException();
+        }
+        Account loggedIn = new Account(account.getAccountId(), account.getUsername(), password);
+        byte[] verified = verifiedCredentials.get(username);
+        if (verified != null && MessageDigest.isEqual(verified, digest(username, password, account.getPassword()))) {
+            return loggedIn;
+        }
+        if (!await(passwordHasher.matches(password, account.getPassword()))) {
+            throw new IncorrectPasswordException();
+        }
+        String encodedPassword = account.getPassword();
+        if (passwordHasher.upgradeEncoding(encodedPassword)) {
+            encodedPassword = await(passwordHasher.encode(password));
+            accountService.updatePassword(account, encodedPassword);
+        }
+        verifiedCredentials.put(username, digest(username, password, encodedPassword));
+        return loggedIn;
+    }
+
+    public BoundedCache<String, byte[]> getVerifiedCredentials() {
+        return verifiedCredentials;
+    }
+
+    /**
+     * waits for a hash computed on the pool. Its failures are rethrown unwrapped
+     */
+    private static <T> T await(CompletableFuture<T> hash) {
+        try {
+            return hash.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private byte[] digest(String username, String password, String encodedPassword) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(digestKey);
+            mac.update(username.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            mac.update(password.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return mac.doFinal(encodedPassword.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.stereotype.Service;
+
+import com.example.cache.BoundedCache;
+import com.example.entity.Follow;
+import com.example.repository.FollowRepository;
+
+/**
+ * the follow graph. Followers of an account are cached as a primitive array
+ * for fanning messages out. Accounts with at least
+ * app.timeline.celebrity-followers followers are celebrities: their messages
+ * are not fanned out but pulled when a home timeline is read. The set of
+ * celebrities is loaded at startup and kept current on every follow and
+ * unfollow
+ */
+@Service
+@DependsOnDatabaseInitialization
+public class FollowService {
+
+    FollowRepository followRepository;
+    BoundedCache<Integer, int[]> followerCache;
+    final long celebrityFollowers;
+    final Set<Integer> celebrities = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public FollowService(FollowRepository followRepository,
+            @Value("${app.cache.followers.max-size}") int cacheMaxSize,
+            @Value("${app.cache.followers.ttl-seconds}") long cacheTtlSeconds,
+            @Value("${app.timeline.celebrity-followers}") long celebrityFollowers) {
+        this.followRepository = followRepository;
+        this.followerCache = new BoundedCache<>(cacheMaxSize, Duration.ofSeconds(cacheTtlSeconds));
+        this.celebrityFollowers = celebrityFollowers;
+    }
+
+    @PostConstruct
+    public void loadCelebrities() {
+        celebrities.clear();
+        celebrities.addAll(followRepository.findFolloweeIdsWithFollowers(celebrityFollowers));
+    }
+
+    /**
+     * makes follower_id follow followee_id. Following twice changes nothing
+     * the cached followers are invalidated once the row is committed
+     */
+    public void follow(int follower_id, int followee_id) {
+        followRepository.save(new Follow(follower_id, followee_id));
+        followerCache.invalidate(followee_id);
+        updateCelebrity(followee_id);
+    }
+
+    /**
+     * @return number of rows deleted. 0 if follower_id did not follow followee_id
+     */
+    public int unfollow(int follower_id, int followee_id) {
+        int deleted = followRepository.deleteFollow(follower_id, followee_id);
+        followerCache.invalidate(followee_id);
+        updateCelebrity(followee_id);
+        return deleted;
+    }
+
+    /**
+     * read-through lookup of the accounts following followee_id. The returned
+     * array is shared and must not be modified. Followers loaded before a
+     * concurrent follow or unfollow are returned but not cached
+     */
+    public int[] findFollowerIds(int followee_id) {
+        int[] cached = followerCache.get(followee_id);
+        if (cached != null) {
+            return cached;
+        }
+        long stamp = followerCache.stamp();
+        int[] followers = followRepository.findFollowerIds(followee_id).stream().mapToInt(Integer::intValue).toArray();
+        followerCache.putIfNotInvalidatedSince(followee_id, followers, stamp);
+        return followers;
+    }
+
+    public List<Integer> findFolloweeIds(int follower_id) {
+        return followRepository.findFolloweeIds(follower_id);
+    }
+
+    public boolean isCelebrity(int account_id) {
+        return celebrities.contains(account_id);
+    }
+
+    public int getCelebrityCount() {
+        return celebrities.size();
+    }
+
+    public BoundedCache<Integer, int[]> getFollowerCache() {
+        return followerCache;
+    }
+
+    private void updateCelebrity(int account_id) {
+        if (followRepository.countByFolloweeId(account_id) >= celebrityFollowers) {
+            celebrities.add(account_id);
+        } else {
+            celebrities.remove(account_id);
+        }
+    }
+}
@@ -1,41 +1,473 @@
 package com.example.service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.example.cache.BoundedCache;
+import com.example.cache.OffHeapMessageStore;
 import com.example.entity.Message;
+import com.example.feed.MessageEvent;
+import com.example.journal.MessageWriteBehind;
 import com.example.repository.MessageRepository;
 
+/**
+ * message lookups and writes in front of MessageRepository
+ * lookups by id are answered from two cache tiers: a small on-heap cache of
+ * Message objects, then a large OffHeapMessageStore of
+ * app.cache.message.off-heap.size-mb whose only heap cost is its index of
+ * app.cache.message.off-heap.index-size slots. Messages found off-heap are
+ * promoted to the on-heap cache, every write goes to both
+ * updates and deletes invalidate both tiers once their transaction commits,
+ * along with the message's second-level cache entry and the cached
+ * findByPostedBy results, which the returning statements leave behind.
+ * Messages loaded from the database are cached only if neither tier saw an
+ * invalidation of them since the load started, so a read racing a write
+ * cannot put the old row back
+ * with app.write-behind.enabled save and saveAll only journal the messages,
+ * see MessageWriteBehind, which publishes them once they are in the database.
+ * Lookups by id answer acknowledged messages from the journal's pending set.
+ * List queries first wait for the pending messages to reach the database, and
+ * read only what is committed once the wait times out. Changes to a pending
+ * message wait the same way and are rejected with RejectedExecutionException
+ * if it is still not in the database. Methods that wait run their transaction
+ * through a TransactionTemplate entered after waiting, so a waiting request
+ * never holds a connection the flush needs
+ */
 @Service
 public class MessageService {
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+
     MessageRepository messageRepository;
+    BoundedCache<Integer, Message> messageCache;
+    OffHeapMessageStore offHeapStore;
+    ApplicationEventPublisher eventPublisher;
+    MessageWriteBehind writeBehind;
+    TransactionTemplate transactionTemplate;
+    TransactionTemplate readOnlyTransactionTemplate;
+
+    @PersistenceContext
+    EntityManager entityManager;
 
     @Autowired
-    public MessageService(MessageRepository messageRepository) {
+    public MessageService(MessageRepository messageRepository, ApplicationEventPublisher eventPublisher,
+            ObjectProvider<MessageWriteBehind> writeBehind, PlatformTransactionManager transactionManager,
+            @Value("${app.cache.message.max-size}") int cacheMaxSize,
+            @Value("${app.cache.message.ttl-seconds}") long cacheTtlSeconds,
+            @Value("${app.cache.message.off-heap.size-mb}") int offHeapSizeMb,
+            @Value("${app.cache.message.off-heap.index-size}") int offHeapIndexSize) {
         this.messageRepository = messageRepository;
+        this.eventPublisher = eventPublisher;
+        this.writeBehind = writeBehind.getIfAvailable();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.messageCache = new BoundedCache<>(cacheMaxSize, Duration.ofSeconds(cacheTtlSeconds));
+        this.offHeapStore = new OffHeapMessageStore(
+                (int) ((long) offHeapSizeMb * 1024 * 1024 / OffHeapMessageStore.SLAB_SIZE), offHeapIndexSize);
     }
 
+    /**
+     * inserts message, or with write-behind journals it. Falls back to inserting
+     * when the journal is full
+     */
     public Message save(Message message) {
-        return messageRepository.save(message);
+        Message journaled = writeBehind == null ? null : writeBehind.write(message);
+        if (journaled != null) {
+            return journaled;
+        }
+        Message saved = messageRepository.save(message);
+        cache(saved);
+        eventPublisher.publishEvent(MessageEvent.created(copyOf(saved)));
+        return saved;
+    }
+
+    /**
+     * inserts every message in one transaction, or with write-behind journals
+     * them and inserts only those the journal has no room for. Inserts are sent
+     * to the database in JDBC batches of hibernate.jdbc.batch_size
+     * 
+     * @return the saved messages, in the order of messages
+     */
+    public List<Message> saveAll(List<Message> messages) {
+        List<Message> saved = new ArrayList<>(messages.size());
+        List<Message> unjournaled = new ArrayList<>();
+        for (Message message : messages) {
+            Message journaled = writeBehind == null ? null : writeBehind.write(message);
+            saved.add(journaled);
+            if (journaled == null) {
+                unjournaled.add(message);
+            }
+        }
+        if (unjournaled.isEmpty()) {
+            return saved;
+        }
+        List<Message> inserted = transactionTemplate.execute(status -> {
+            List<Message> result = messageRepository.saveAll(unjournaled);
+            for (Message message : result) {
+                cache(message);
+                eventPublisher.publishEvent(MessageEvent.created(copyOf(message)));
+            }
+            return result;
+        });
+        int next = 0;
+        for (int i = 0; i < saved.size(); i++) {
+            if (saved.get(i) == null) {
+                saved.set(i, inserted.get(next++));
+            }
+        }
+        return saved;
     }
 
     public List<Message> findAll() {
+        awaitWriteBehind();
         return messageRepository.findAll();
     }
 
+    /**
+     * retrieves at most limit messages with message_id greater than message_id,
+     * ordered by message_id. limit is capped at MAX_PAGE_SIZE
+     */
+    public List<Message> findAfter(int message_id, int limit) {
+        awaitWriteBehind();
+        return messageRepository.findByMessageIdGreaterThanOrderByMessageIdAsc(message_id,
+                PageRequest.of(0, Math.min(limit, MAX_PAGE_SIZE)));
+    }
+
+    /**
+     * feeds every message to consumer in message_id order without holding the
+     * whole table in memory. Each message is detached once consumed so the
+     * persistence context stays empty
+     */
+    public void streamAll(Consumer<Message> consumer) {
+        awaitWriteBehind();
+        readOnlyTransactionTemplate.executeWithoutResult(status -> {
+            try (Stream<Message> messages = messageRepository.streamAll()) {
+                messages.forEach(message -> {
+                    consumer.accept(message);
+                    entityManager.detach(message);
+                });
+            }
+        });
+    }
+
+    /**
+     * read-through lookup. Callers always receive their own copy so mutating the
+     * result never changes the cached message
+     */
     public Message findByMessageId(int message_id) {
-        return messageRepository.findByMessageId(message_id);
+        Message cached = findCached(message_id);
+        if (cached != null) {
+            return copyOf(cached);
+        }
+        long heapStamp = messageCache.stamp();
+        long offHeapStamp = offHeapStore.stamp();
+        Message message = messageRepository.findByMessageId(message_id);
+        if (message != null) {
+            cacheLoaded(message, heapStamp, offHeapStamp);
+        }
+        return message;
+    }
+
+    /**
+     * looks every message_id up, in the cache first and then with a single query
+     * for the misses. Messages are returned in the order of message_ids, ids that
+     * do not exist are skipped
+     */
+    public List<Message> findAllByMessageId(List<Integer> message_ids) {
+        Map<Integer, Message> found = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (Integer message_id : message_ids) {
+            Message cached = findCached(message_id);
+            if (cached != null) {
+                found.put(message_id, copyOf(cached));
+            } else {
+                missing.add(message_id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            long heapStamp = messageCache.stamp();
+            long offHeapStamp = offHeapStore.stamp();
+            for (Message message : messageRepository.findAllById(missing)) {
+                cacheLoaded(message, heapStamp, offHeapStamp);
+                found.put(message.getMessageId(), message);
+            }
+        }
+        List<Message> messages = new ArrayList<>(message_ids.size());
+        for (Integer message_id : message_ids) {
+            Message message = found.get(message_id);
+            if (message != null) {
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * replaces the text of message message_id without loading it first. The
+     * updated message is published from the cached message when there is one,
+     * otherwise from the row the update statement returns
+     * 
+     * @return number of rows updated. 0 if the message does not exist
+     */
+    public int updateMessageText(int message_id, String message_text) {
+        awaitWriteBehind(message_id);
+        return transactionTemplate.execute(status -> {
+            Message cached = findCached(message_id);
+            Message message = null;
+            int updated;
+            if (cached != null) {
+                updated = messageRepository.updateMessageTextByMessageId(message_id, message_text);
+                message = new Message(message_id, cached.getPostedBy(), message_text, cached.getTimePostedEpoch());
+            } else {
+                List<Object[]> rows = messageRepository.updateMessageTextReturning(message_id, message_text);
+                updated = rows.size();
+                if (updated > 0) {
+                    message = new Message(message_id, toInteger(rows.get(0)[0]), message_text,
+                            toLong(rows.get(0)[1]));
+                }
+            }
+            invalidateAfterCommit(message_id);
+            if (updated > 0) {
+                eventPublisher.publishEvent(MessageEvent.updated(message));
+            }
+            return updated;
+        });
     }
 
+    /**
+     * deletes message message_id without loading it from the database first. The
+     * deleted message is published from the cached message when there is one,
+     * otherwise from the row the delete statement returns
+     * 
+     * @return number of rows deleted. 0 if the message does not exist
+     */
     public int deleteById(int message_id) {
-        messageRepository.deleteById(message_id);
-        return 1;
+        awaitWriteBehind(message_id);
+        return transactionTemplate.execute(status -> {
+            Message cached = findCached(message_id);
+            Message message = null;
+            int deleted;
+            if (cached != null) {
+                deleted = messageRepository.deleteByMessageId(message_id);
+                message = copyOf(cached);
+            } else {
+                List<Object[]> rows = messageRepository.deleteByMessageIdReturning(message_id);
+                deleted = rows.size();
+                if (deleted > 0) {
+                    message = new Message(message_id, toInteger(rows.get(0)[0]), (String) rows.get(0)[1],
+                            toLong(rows.get(0)[2]));
+                }
+            }
+            invalidateAfterCommit(message_id);
+            if (deleted > 0) {
+                eventPublisher.publishEvent(MessageEvent.deleted(message));
+            }
+            return deleted;
+        });
     }
 
     public List<Message> findByPostedBy(Integer account_id) {
+        awaitWriteBehind();
         return messageRepository.findByPostedBy(account_id);
     }
 
+    /**
+     * retrieves at most limit messages posted by account_id, newest first. When
+     * time_posted_epoch and message_id are given only messages older than that
+     * cursor are returned. limit is capped at MAX_PAGE_SIZE
+     * only the ids of the page are queried, the messages are looked up like
+     * findAllByMessageId
+     */
+    public List<Message> findTimeline(int account_id, Long time_posted_epoch, Integer message_id, int limit) {
+        awaitWriteBehind();
+        PageRequest page = PageRequest.of(0, Math.min(limit, MAX_PAGE_SIZE));
+        if (time_posted_epoch == null || message_id == null) {
+            return findAllByMessageId(messageRepository.findTimelineIdsByPostedBy(account_id, page));
+        }
+        return findAllByMessageId(
+                messageRepository.findTimelineIdsByPostedByBefore(account_id, time_posted_epoch, message_id, page));
+    }
+
+    /**
+     * retrieves at most limit messages newer than a cursor, oldest first. With
+     * time_posted_epoch the cursor is (time_posted_epoch, message_id) and
+     * messages are ordered by timePostedEpoch then messageId; without message_id
+     * only messages posted after time_posted_epoch are returned. Without
+     * time_posted_epoch this is findAfter(message_id, limit). limit is capped at
+     * MAX_PAGE_SIZE
+     * the cursor is not a change sequence: rows updated or deleted behind it, and
+     * rows that commit behind it after it was read, are never returned
+     */
+    public List<Message> findSince(Long time_posted_epoch, Integer message_id, int limit) {
+        if (time_posted_epoch == null) {
+            return findAfter(message_id == null ? 0 : message_id, limit);
+        }
+        awaitWriteBehind();
+        return messageRepository.findSince(time_posted_epoch, message_id == null ? Integer.MAX_VALUE : message_id,
+                PageRequest.of(0, Math.min(limit, MAX_PAGE_SIZE)));
+    }
+
+    /**
+     * findSince restricted to the messages posted by account_id
+     */
+    public List<Message> findTimelineSince(int account_id, Long time_posted_epoch, Integer message_id, int limit) {
+        awaitWriteBehind();
+        PageRequest page = PageRequest.of(0, Math.min(limit, MAX_PAGE_SIZE));
+        if (time_posted_epoch == null) {
+            return messageRepository.findByPostedByAndMessageIdGreaterThanOrderByMessageIdAsc(account_id,
+                    message_id == null ? 0 : message_id, page);
+        }
+        return messageRepository.findTimelineByPostedBySince(account_id, time_posted_epoch,
+                message_id == null ? Integer.MAX_VALUE : message_id, page);
+    }
+
+    /**
+     * retrieves the ids of at most limit messages posted by any of posted_by
+     * with message_id greater than message_id, newest first. posted_by must not
+     * be empty
+     */
+    public List<Integer> findIdsPostedByAfter(Collection<Integer> posted_by, int message_id, int limit) {
+        awaitWriteBehind();
+        return messageRepository.findIdsByPostedByInAfter(posted_by, message_id, PageRequest.of(0, limit));
+    }
+
+    /**
+     * retrieves at most limit messages posted by any of posted_by with
+     * message_id less than message_id, newest first. posted_by must not be empty.
+     * limit is capped at MAX_PAGE_SIZE
+     */
+    public List<Message> findPostedByBefore(Collection<Integer> posted_by, int message_id, int limit) {
+        awaitWriteBehind();
+        return messageRepository.findByPostedByInAndMessageIdLessThanOrderByMessageIdDesc(posted_by, message_id,
+                PageRequest.of(0, Math.min(limit, MAX_PAGE_SIZE)));
+    }
+
+    public BoundedCache<Integer, Message> getMessageCache() {
+        return messageCache;
+    }
+
+    public OffHeapMessageStore getOffHeapStore() {
+        return offHeapStore;
+    }
+
+    /**
+     * looks message_id up in the on-heap cache, the off-heap store, then the
+     * messages pending write-behind. The result is shared and must be copied
+     * before it leaves the service
+     */
+    private Message findCached(int message_id) {
+        Message cached = messageCache.get(message_id);
+        if (cached == null) {
+            long heapStamp = messageCache.stamp();
+            cached = offHeapStore.get(message_id);
+            if (cached != null) {
+                messageCache.putIfNotInvalidatedSince(message_id, cached, heapStamp);
+            }
+        }
+        if (cached == null && writeBehind != null) {
+            cached = writeBehind.findPending(message_id);
+        }
+        return cached;
+    }
+
+    private void cache(Message message) {
+        messageCache.put(message.getMessageId(), copyOf(message));
+        offHeapStore.put(message);
+    }
+
+    /**
+     * caches a message read from the database unless a tier saw it invalidated
+     * after its stamp was taken
+     */
+    private void cacheLoaded(Message message, long heapStamp, long offHeapStamp) {
+        messageCache.putIfNotInvalidatedSince(message.getMessageId(), copyOf(message), heapStamp);
+        offHeapStore.putIfNotInvalidatedSince(message, offHeapStamp);
+    }
+
+    private void invalidate(int message_id) {
+        messageCache.invalidate(message_id);
+        offHeapStore.invalidate(message_id);
+        EntityManagerFactory entityManagerFactory = entityManager.getEntityManagerFactory();
+        entityManagerFactory.getCache().evict(Message.class, message_id);
+        entityManagerFactory.unwrap(SessionFactory.class).getCache()
+                .evictQueryRegion(MessageRepository.QUERY_CACHE_REGION);
+    }
+
+    /**
+     * invalidates message_id once the current transaction commits. Until then
+     * other transactions still read the old row, and would cache it again
+     */
+    private void invalidateAfterCommit(int message_id) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(message_id);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(message_id);
+            }
+        });
+    }
+
+    /**
+     * lets list queries see every acknowledged message. When the flush is late
+     * they go ahead with what is committed
+     */
+    private void awaitWriteBehind() {
+        if (writeBehind != null && writeBehind.hasPending()) {
+            writeBehind.awaitFlushed();
+        }
+    }
+
+    /**
+     * lets changes to message_id find its row
+     * 
+     * @throws RejectedExecutionException when message_id is still pending once
+     *                                    the wait times out
+     */
+    private void awaitWriteBehind(int message_id) {
+        if (writeBehind != null && writeBehind.isPending(message_id) && !writeBehind.awaitFlushed()
+                && writeBehind.isPending(message_id)) {
+            throw new RejectedExecutionException("message " + message_id + " is not yet written");
+        }
+    }
+
+    private static Integer toInteger(Object value) {
+        return value == null ? null : ((Number) value).intValue();
+    }
+
+    private static Long toLong(Object value) {
+        return value == null ? null : ((Number) value).longValue();
+    }
+
+    private static Message copyOf(Message message) {
+        return new Message(message.getMessageId(), message.getPostedBy(), message.getMessageText(),
+                message.getTimePostedEpoch());
+    }
+
 }
@@ -0,0 +1,175 @@
+package com.example.timeline;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.cache.BoundedCache;
+import com.example.entity.Message;
+import com.example.feed.MessageEvent;
+import com.example.service.FollowService;
+import com.example.service.MessageService;
+
+/**
+ * home timelines, the messages of an account and of the accounts it follows,
+ * newest first by messageId
+ * the timeline of an account is precomputed into a TimelineRing when it is
+ * first read, and every new message is pushed into the rings of its poster and
+ * of the poster's followers that are cached (fan-out on write). Deleted
+ * messages are removed from the same rings. Messages of celebrities, see
+ * FollowService, are never pushed: they are pulled from the database when a
+ * timeline is read and merged in
+ * rings hold the newest app.timeline.capacity pushed messages, older ones are
+ * not served. At most app.timeline.max-accounts rings are cached, the least
+ * recently read are evicted and rebuilt on their next read
+ */
+@Component
+public class HomeTimeline {
+
+    FollowService followService;
+    MessageService messageService;
+    BoundedCache<Integer, TimelineRing> rings;
+    final int capacity;
+
+    @Autowired
+    public HomeTimeline(FollowService followService, MessageService messageService,
+            @Value("${app.timeline.capacity}") int capacity,
+            @Value("${app.timeline.max-accounts}") int maxAccounts,
+            @Value("${app.timeline.ttl-seconds}") long ttlSeconds) {
+        this.followService = followService;
+        this.messageService = messageService;
+        this.capacity = capacity;
+        this.rings = new BoundedCache<>(maxAccounts, Duration.ofSeconds(ttlSeconds));
+    }
+
+    /**
+     * retrieves at most limit messages of the home timeline of account_id, newest
+     * first. When before_id is given only messages with a smaller messageId are
+     * returned
+     */
+    public List<Message> findHomeTimeline(int account_id, Integer before_id, int limit) {
+        TimelineRing ring = rings.get(account_id);
+        if (ring == null) {
+            ring = build(account_id);
+        }
+        int before = before_id == null ? Integer.MAX_VALUE : before_id;
+        int[] messageIds = ring.snapshot();
+        Arrays.sort(messageIds);
+        List<Integer> newest = new ArrayList<>(Math.min(limit, messageIds.length));
+        for (int i = messageIds.length - 1; i >= 0 && newest.size() < limit; i--) {
+            // the ring may hold an id twice, adjacent once sorted
+            if (messageIds[i] < before && (i == messageIds.length - 1 || messageIds[i] != messageIds[i + 1])) {
+                newest.add(messageIds[i]);
+            }
+        }
+        List<Message> messages = messageService.findAllByMessageId(newest);
+        int[] celebrities = ring.getCelebrityFollowees();
+        if (celebrities.length == 0) {
+            return messages;
+        }
+        List<Integer> pulled = new ArrayList<>(celebrities.length);
+        for (int celebrity : celebrities) {
+            pulled.add(celebrity);
+        }
+        messages.addAll(messageService.findPostedByBefore(pulled, before, limit));
+        messages.sort(Comparator.comparing(Message::getMessageId).reversed());
+        return messages.size() > limit ? new ArrayList<>(messages.subList(0, limit)) : messages;
+    }
+
+    /**
+     * makes follower_id follow followee_id. The ring of follower_id is rebuilt on
+     * its next read, every ring if followee_id became a celebrity
+     */
+    public void follow(int follower_id, int followee_id) {
+        boolean celebrity = followService.isCelebrity(followee_id);
+        followService.follow(follower_id, followee_id);
+        invalidate(follower_id, celebrity != followService.isCelebrity(followee_id));
+    }
+
+    /**
+     * @return number of rows deleted. 0 if follower_id did not follow followee_id
+     */
+    public int unfollow(int follower_id, int followee_id) {
+        boolean celebrity = followService.isCelebrity(followee_id);
+        int deleted = followService.unfollow(follower_id, followee_id);
+        invalidate(follower_id, celebrity != followService.isCelebrity(followee_id));
+        return deleted;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMessageEvent(MessageEvent event) {
+        Message message = event.getMessage();
+        Integer postedBy = message.getPostedBy();
+        if (postedBy == null || event.getType() == MessageEvent.Type.UPDATED) {
+            return;
+        }
+        boolean created = event.getType() == MessageEvent.Type.CREATED;
+        push(rings.peek(postedBy), message.getMessageId(), created);
+        if (followService.isCelebrity(postedBy)) {
+            return;
+        }
+        for (int follower : followService.findFollowerIds(postedBy)) {
+            push(rings.peek(follower), message.getMessageId(), created);
+        }
+    }
+
+    public BoundedCache<Integer, TimelineRing> getRings() {
+        return rings;
+    }
+
+    /**
+     * loads the newest messages of account_id and of the non-celebrities it
+     * follows into a new ring and caches it. Messages committed after the first
+     * query but before the ring was cached missed the push, the second query
+     * catches up on them
+     */
+    private TimelineRing build(int account_id) {
+        List<Integer> pushed = new ArrayList<>();
+        List<Integer> celebrities = new ArrayList<>();
+        pushed.add(account_id);
+        for (Integer followee : followService.findFolloweeIds(account_id)) {
+            (followService.isCelebrity(followee) ? celebrities : pushed).add(followee);
+        }
+        TimelineRing ring = new TimelineRing(capacity, celebrities.stream().mapToInt(Integer::intValue).toArray());
+        List<Integer> newest = messageService.findIdsPostedByAfter(pushed, 0, capacity);
+        int after = newest.isEmpty() ? 0 : newest.get(0);
+        for (int i = newest.size() - 1; i >= 0; i--) {
+            ring.add(newest.get(i));
+        }
+        TimelineRing cached = rings.putIfAbsent(account_id, ring);
+        if (cached != null) {
+            return cached;
+        }
+        List<Integer> missed = messageService.findIdsPostedByAfter(pushed, after, capacity);
+        for (int i = missed.size() - 1; i >= 0; i--) {
+            ring.add(missed.get(i));
+        }
+        return ring;
+    }
+
+    private void invalidate(int follower_id, boolean celebrityChanged) {
+        if (celebrityChanged) {
+            rings.clear();
+        } else {
+            rings.invalidate(follower_id);
+        }
+    }
+
+    private static void push(TimelineRing ring, int message_id, boolean created) {
+        if (ring == null) {
+            return;
+        }
+        if (created) {
+            ring.add(message_id);
+        } else {
+            ring.remove(message_id);
+        }
+    }
+}
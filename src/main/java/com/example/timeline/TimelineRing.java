@@ -0,0 +1,66 @@
+package com.example.timeline;
+
+import java.util.Arrays;
+
+/**
+ * the newest message ids of one home timeline in a fixed int array. Once full,
+ * every add overwrites the oldest entry. Removed ids leave a hole until they
+ * are overwritten. Message ids start at 1, so 0 marks an empty slot
+ * also holds the celebrities the account follows, whose messages are pulled
+ * at read time instead of being added here
+ */
+public class TimelineRing {
+    private static final int EMPTY = 0;
+
+    private final int[] messageIds;
+    private final int[] celebrityFollowees;
+    private int next;
+    private int size;
+
+    public TimelineRing(int capacity, int[] celebrityFollowees) {
+        this.messageIds = new int[capacity];
+        this.celebrityFollowees = celebrityFollowees;
+    }
+
+    public synchronized void add(int messageId) {
+        messageIds[next] = messageId;
+        next = (next + 1) % messageIds.length;
+        if (size < messageIds.length) {
+            size++;
+        }
+    }
+
+    public synchronized void remove(int messageId) {
+        for (int i = 0; i < size; i++) {
+            if (messageIds[i] == messageId) {
+                messageIds[i] = EMPTY;
+            }
+        }
+    }
+
+    /**
+     * @return a copy of the ids currently held, in no particular order. May
+     *         contain duplicates
+     */
+    public synchronized int[] snapshot() {
+        int[] snapshot = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (messageIds[i] != EMPTY) {
+                snapshot[count++] = messageIds[i];
+            }
+        }
+        return count == size ? snapshot : Arrays.copyOf(snapshot, count);
+    }
+
+    /**
+     * the returned array is shared and must not be modified
+     */
+    public int[] getCelebrityFollowees() {
+        return celebrityFollowees;
+    }
+
+    public int getCapacity() {
+        return messageIds.length;
+    }
+}
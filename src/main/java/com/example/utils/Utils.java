@@ -5,7 +5,10 @@ import com.example.entity.Message;
 
 public class Utils {
     public static boolean validateMessageFormat(Message message){
-        if(message.getMessageText().isBlank()){
+        if(message == null){
+            return false;
+        }
+        if(message.getMessageText() == null || message.getMessageText().isBlank()){
             return false;
         }
         if(message.getMessageText().length() >= 256){
@@ -23,4 +26,28 @@ public class Utils {
         }
         return true;
     }
+
+    public static boolean validatePageLimit(int limit){
+        if(limit < 1){
+            return false;
+        }
+        return true;
+    }
+
+    public static boolean validatePageOffset(int offset){
+        if(offset < 0){
+            return false;
+        }
+        return true;
+    }
+
+    public static boolean validateSearchQuery(String query){
+        if(query == null || query.isBlank()){
+            return false;
+        }
+        if(query.length() >= 256){
+            return false;
+        }
+        return true;
+    }
 }
@@ -1,3 +1,4 @@
+drop table if exists follow;
 drop table if exists message;
 drop table if exists account;
 create table account (
@@ -12,6 +13,24 @@ create table message (
     time_posted_epoch bigint,
     foreign key (posted_by) references account(account_id)
 );
+-- ids of new messages, see Message. The pooled-lo optimizer hands out the 50 ids from each value it draws, so the
+-- first block is 1-50. Blocks stay below the seeded message_ids until 9950 ids have been handed out
+drop sequence if exists message_seq;
+create sequence message_seq start with 1 increment by 50;
+-- serves the newest-first per-account timeline without sorting
+create index message_posted_by_time_idx on message (posted_by, time_posted_epoch, message_id);
+-- serve the since queries as range scans
+create index message_time_idx on message (time_posted_epoch, message_id);
+create index message_posted_by_id_idx on message (posted_by, message_id);
+create table follow (
+    follower_id int not null,
+    followee_id int not null,
+    primary key (follower_id, followee_id),
+    foreign key (follower_id) references account(account_id),
+    foreign key (followee_id) references account(account_id)
+);
+-- finds the followers to fan a new message out to
+create index follow_followee_idx on follow (followee_id, follower_id);
 
 -- Starting test values with ids of 9999 to avoid test issues
 insert into account values (9999, 'testuser1', 'password');
@@ -23,3 +42,7 @@ insert into message values (9999, 9999,'test message 1',1669947792);
 insert into message values (9997, 9997,'test message 2',1669947792);
 insert into message values (9996, 9996,'test message 3',1669947792);
 
+
+-- passwords are stored as {id}encoded. Rows written before passwords were hashed hold plaintext: tag them
+-- {noop} so they keep verifying. They are rehashed with bcrypt on their next successful login
+update account set password = concat('{noop}', password) where password not like '{%}%';
@@ -0,0 +1,74 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+public class ReactiveAdmissionControlTest {
+	ApplicationContext app;
+    HttpClient webClient;
+
+    /**
+     * Before every test, reset the database, restart the app under the reactive profile with small write limits,
+     * and create a new webClient for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        String[] args = new String[] { "--spring.profiles.active=reactive",
+                "--app.admission.client.rate-per-second=0.01", "--app.admission.client.burst=5",
+                "--app.admission.account.rate-per-second=0.01", "--app.admission.account.burst=2" };
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private HttpResponse<String> send(String method, String path, String json) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .method(method, json == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Sending http requests to POST localhost:8080/messages three times for account 9999 and
+     * DELETE localhost:8080/messages/1234 three times
+     *
+     * Expected Response:
+     *  Status Code: 200, 200, 429 for 9999, then 200 twice and 429 once the client is over its burst. Every
+     *  admitted write is released
+     */
+    @Test
+    public void reactiveWritesAreAdmitted() throws IOException, InterruptedException {
+        String json = "{\"postedBy\":9999,\"messageText\": \"hello\",\"timePostedEpoch\": 1669947792}";
+        Assertions.assertEquals(200, send("POST", "/messages", json).statusCode());
+        Assertions.assertEquals(200, send("POST", "/messages", json).statusCode());
+        HttpResponse<String> response = send("POST", "/messages", json);
+        Assertions.assertEquals(429, response.statusCode(), "Expected Status Code 429 - Actual Code was: " + response.statusCode());
+
+        for (int i = 0; i < 2; i++) {
+            Assertions.assertEquals(200, send("DELETE", "/messages/1234", null).statusCode());
+        }
+        response = send("DELETE", "/messages/1234", null);
+        Assertions.assertEquals(429, response.statusCode(), "Expected Status Code 429 - Actual Code was: " + response.statusCode());
+        Assertions.assertEquals(200, send("GET", "/messages", null).statusCode());
+        Assertions.assertTrue(send("GET", "/actuator/prometheus", null).body().contains("admission_writes_active 0.0"));
+    }
+}
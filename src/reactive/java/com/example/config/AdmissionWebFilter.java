@@ -0,0 +1,58 @@
+package com.example.config;
+
+import java.util.List;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import com.example.admission.AdmissionControl;
+import com.example.exception.TooManyRequestsException;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * reactive counterpart of AdmissionControlInterceptor. Admits write requests
+ * (anything but GET, HEAD and OPTIONS) on the message and follow endpoints
+ * through AdmissionControl, keyed by the client address, and releases them
+ * once the response completes, errors or is cancelled
+ * a rejection is answered with status 429 here, since exceptions raised by
+ * filters never reach the controller's exception handlers
+ */
+public class AdmissionWebFilter implements WebFilter {
+
+    private static final List<PathPattern> PATTERNS = List.of(
+            PathPatternParser.defaultInstance.parse("/messages/**"),
+            PathPatternParser.defaultInstance.parse("/accounts/*/following/**"));
+
+    private final AdmissionControl admissionControl;
+
+    public AdmissionWebFilter(AdmissionControl admissionControl) {
+        this.admissionControl = admissionControl;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        HttpMethod method = exchange.getRequest().getMethod();
+        if (method == HttpMethod.GET || method == HttpMethod.HEAD || method == HttpMethod.OPTIONS
+                || PATTERNS.stream().noneMatch(pattern -> pattern.matches(exchange.getRequest().getPath().pathWithinApplication()))) {
+            return chain.filter(exchange);
+        }
+        try {
+            admissionControl.admit(clientAddress(exchange));
+        } catch (TooManyRequestsException e) {
+            exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+            return exchange.getResponse().setComplete();
+        }
+        return chain.filter(exchange).doFinally(signal -> admissionControl.release());
+    }
+
+    private static String clientAddress(ServerWebExchange exchange) {
+        return exchange.getRequest().getRemoteAddress() == null ? ""
+                : exchange.getRequest().getRemoteAddress().getAddress().getHostAddress();
+    }
+}
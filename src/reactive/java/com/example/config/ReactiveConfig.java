@@ -0,0 +1,35 @@
+package com.example.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import com.example.admission.AdmissionControl;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * infrastructure of the reactive profile. Blocking JPA calls made on behalf of
+ * reactive endpoints run on jdbcScheduler, which has exactly one thread per
+ * pooled connection so the event loop never blocks and no thread ever waits
+ * for a connection
+ * write endpoints are admitted through the same AdmissionControl as on the
+ * servlet stack, by AdmissionWebFilter
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler jdbcScheduler(@Value("${spring.datasource.hikari.maximum-pool-size}") int poolSize,
+            @Value("${app.reactive.jdbc-queue-capacity}") int queueCapacity) {
+        return Schedulers.newBoundedElastic(poolSize, queueCapacity, "jdbc");
+    }
+
+    @Bean
+    public AdmissionWebFilter admissionWebFilter(AdmissionControl admissionControl) {
+        return new AdmissionWebFilter(admissionControl);
+    }
+}
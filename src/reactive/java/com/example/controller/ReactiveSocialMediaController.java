@@ -0,0 +1,234 @@
+package com.example.controller;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.admission.AdmissionControl;
+import com.example.entity.Account;
+import com.example.entity.Message;
+import com.example.exception.AccountDoesNotExistException;
+import com.example.exception.ClientFormatException;
+import com.example.exception.DuplicateUsernameException;
+import com.example.exception.IncorrectPasswordException;
+import com.example.exception.MessageDoesNotExistErrorException;
+import com.example.exception.MessageDoesNotExistOKException;
+import com.example.exception.TooManyRequestsException;
+import com.example.service.ReactiveAccountService;
+import com.example.service.ReactiveMessageService;
+import com.example.utils.Utils;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * non-blocking controller serving the original endpoints of
+ * SocialMediaController with the same status codes and bodies. Paging, since,
+ * batch, search, feeds, the home timeline and following are servlet only
+ * active under the reactive profile only, see application-reactive.properties.
+ * Built with mvn -Preactive, which puts webflux on the classpath
+ */
+@RestController
+@Profile("reactive")
+public class ReactiveSocialMediaController {
+
+    ReactiveAccountService accountService;
+    ReactiveMessageService messageService;
+    AdmissionControl admissionControl;
+
+    @Autowired
+    public ReactiveSocialMediaController(ReactiveAccountService accountService,
+            ReactiveMessageService messageService, AdmissionControl admissionControl) {
+        this.accountService = accountService;
+        this.messageService = messageService;
+        this.admissionControl = admissionControl;
+    }
+
+    /**
+     * GET endpoint that retrieves all messages
+     * messages are read page by page as the client consumes them
+     * status 200 always
+     *
+     * @return Flux<Message> every existing message
+     */
+    @GetMapping(value = "messages")
+    public Flux<Message> getAllMessages() {
+        return messageService.findAll();
+    }
+
+    /**
+     * GET endpoint that retrieves all message of account with account_id
+     * status 200 always
+     *
+     * @param account_id
+     * @return Flux<Message> the messages of account with account_id
+     */
+    @GetMapping(value = "accounts/{account_id}/messages")
+    public Flux<Message> getMessagesFromUser(@PathVariable int account_id) {
+        return messageService.findByPostedBy(account_id);
+    }
+
+    /**
+     * GET endpoint that retrieves a message by message_id
+     * status 200 always
+     *
+     * @param message_id
+     * @return Mono<Message> the message with message_id, empty otherwise
+     */
+    @GetMapping(value = "messages/{message_id}")
+    public Mono<Message> getMessageByID(@PathVariable int message_id) {
+        return messageService.findByMessageId(message_id);
+    }
+
+    /**
+     * POST endpoint that registers an account
+     * status 400 if format is illformed. Status 409 if username is taken
+     * status 503 if the hashing pool is saturated
+     * status 200 if successful. Returns registered account
+     *
+     * @param account new account to be registered. Does not contain account_id
+     * @return Mono<Account> the account just registered. Contains account_id
+     */
+    @PostMapping(value = "register")
+    public Mono<Account> postRegisterAccount(@RequestBody Account account) {
+        // validates username and password format
+        if (!Utils.validateAccountFormat(account)) {
+            return Mono.error(new ClientFormatException());
+        }
+        // the unique constraint on username decides whether it is taken
+        return accountService.register(account);
+    }
+
+    /**
+     * POST endpoint that logs an account in
+     * status 401 if login fails. status 503 if the hashing pool is saturated
+     * status 200 if successful. Returns logged in account
+     *
+     * @param account the account to login with. Does not contain account_id
+     * @return Mono<Account> the account just logged in. Contains account_id
+     */
+    @PostMapping(value = "login")
+    public Mono<Account> postLoginAccount(@RequestBody Account account) {
+        return accountService.login(account.getUsername(), account.getPassword());
+    }
+
+    /**
+     * POST endpoint that creates a new message
+     * status 400 if message creation fails in any way
+     * status 429 if the poster is over its rate
+     * status 200 if successful. Returns created message
+     *
+     * @param message the message to create. Does not contain message_id
+     * @return Mono<Message> the message created. Contains message_id
+     */
+    @PostMapping(value = "messages")
+    public Mono<Message> postCreateMessage(@RequestBody Message message) {
+        // validates message format
+        if (!Utils.validateMessageFormat(message)) {
+            return Mono.error(new ClientFormatException());
+        }
+        // verifies user exists before saving
+        return accountService.findByAccountId(message.getPostedBy())
+                .switchIfEmpty(Mono.error(new ClientFormatException()))
+                .flatMap(postedBy -> admissionControl.tryAcquireAccount(postedBy.getAccountId())
+                        ? messageService.save(message)
+                        : Mono.error(new TooManyRequestsException()));
+    }
+
+    /**
+     * PATCH endpoint that updates an existing message with new text
+     * status 400 if message update fails in any way
+     * status 503 if the message is acknowledged but not yet written behind
+     * status 200 if successful
+     *
+     * @param message_id the message to be patched
+     * @param message    the message to replace the existing message
+     * @return Mono<Integer> number of message patched. Always 1 if successful
+     */
+    @PatchMapping(value = "messages/{message_id}")
+    public Mono<Integer> patchMessageById(@PathVariable int message_id, @RequestBody Message message) {
+        // validates message format
+        if (!Utils.validateMessageFormat(message)) {
+            return Mono.error(new ClientFormatException());
+        }
+        return messageService.updateMessageText(message_id, message.getMessageText())
+                .flatMap(updated -> updated == 0 ? Mono.error(new MessageDoesNotExistErrorException())
+                        : Mono.just(updated));
+    }
+
+    /**
+     * DELETE endpoint that deletes a message by message_id
+     * returns empty response body if message does not exist
+     * status 503 if the message is acknowledged but not yet written behind
+     * status 200 otherwise
+     *
+     * @param message_id
+     * @return Mono<Integer> number of rows deleted. Always 1 if successful
+     */
+    @DeleteMapping(value = "messages/{message_id}")
+    public Mono<Integer> deleteMessageByID(@PathVariable int message_id) {
+        return messageService.deleteById(message_id)
+                .flatMap(deleted -> deleted == 0 ? Mono.error(new MessageDoesNotExistOKException())
+                        : Mono.just(deleted));
+    }
+
+    /**
+     * status 200
+     */
+    @ExceptionHandler(MessageDoesNotExistOKException.class)
+    @ResponseStatus(HttpStatus.OK)
+    public void handleOKException() {
+    }
+
+    /**
+     * status 400
+     */
+    @ExceptionHandler({ ClientFormatException.class, MessageDoesNotExistErrorException.class })
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public void handleBadRequestException() {
+    }
+
+    /**
+     * status 401
+     */
+    @ExceptionHandler({ IncorrectPasswordException.class, AccountDoesNotExistException.class })
+    @ResponseStatus(HttpStatus.UNAUTHORIZED)
+    public void handleUnauthorizedException() {
+    }
+
+    /**
+     * status 409
+     */
+    @ExceptionHandler(DuplicateUsernameException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public void handleConflictException() {
+    }
+
+    /**
+     * status 429
+     */
+    @ExceptionHandler(TooManyRequestsException.class)
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public void handleTooManyRequestsException() {
+    }
+
+    /**
+     * status 503
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public void handleServiceUnavailableException() {
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.example.service;
+
+import java.util.concurrent.Callable;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import com.example.entity.Account;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * non-blocking view of AccountService and CredentialService for the reactive
+ * profile. Every call is executed on the jdbc scheduler, credential calls
+ * waiting there for their hash as request threads do
+ */
+@Service
+@Profile("reactive")
+public class ReactiveAccountService {
+
+    AccountService accountService;
+    CredentialService credentialService;
+    Scheduler jdbcScheduler;
+
+    @Autowired
+    public ReactiveAccountService(AccountService accountService, CredentialService credentialService,
+            Scheduler jdbcScheduler) {
+        this.accountService = accountService;
+        this.credentialService = credentialService;
+        this.jdbcScheduler = jdbcScheduler;
+    }
+
+    public Mono<Account> register(Account account) {
+        return blocking(() -> credentialService.register(account));
+    }
+
+    public Mono<Account> login(String username, String password) {
+        return blocking(() -> credentialService.login(username, password));
+    }
+
+    public Mono<Account> findByUsername(String username) {
+        return blocking(() -> accountService.findByUsername(username));
+    }
+
+    public Mono<Account> findByAccountId(Integer accountId) {
+        return blocking(() -> accountService.findByAccountId(accountId));
+    }
+
+    public Mono<Account> save(Account account) {
+        return blocking(() -> accountService.save(account));
+    }
+
+    /**
+     * a null result completes empty
+     */
+    private <T> Mono<T> blocking(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(jdbcScheduler);
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.service;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import com.example.entity.Message;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * non-blocking view of MessageService for the reactive profile. Every call is
+ * executed on the jdbc scheduler. Lists are emitted page by page and the next
+ * page is only read once downstream has consumed the previous one
+ */
+@Service
+@Profile("reactive")
+public class ReactiveMessageService {
+    public static final int STREAM_PAGE_SIZE = 500;
+
+    MessageService messageService;
+    Scheduler jdbcScheduler;
+
+    @Autowired
+    public ReactiveMessageService(MessageService messageService, Scheduler jdbcScheduler) {
+        this.messageService = messageService;
+        this.jdbcScheduler = jdbcScheduler;
+    }
+
+    public Mono<Message> save(Message message) {
+        return blocking(() -> messageService.save(message));
+    }
+
+    /**
+     * every message in message_id order, read in keyset pages of
+     * STREAM_PAGE_SIZE
+     */
+    public Flux<Message> findAll() {
+        return page(0)
+                .expand(page -> page.size() < STREAM_PAGE_SIZE ? Mono.empty()
+                        : page(page.get(page.size() - 1).getMessageId()))
+                .concatMapIterable(page -> page, 1);
+    }
+
+    public Mono<Message> findByMessageId(int message_id) {
+        return blocking(() -> messageService.findByMessageId(message_id));
+    }
+
+    public Mono<Integer> updateMessageText(int message_id, String message_text) {
+        return blocking(() -> messageService.updateMessageText(message_id, message_text));
+    }
+
+    public Mono<Integer> deleteById(int message_id) {
+        return blocking(() -> messageService.deleteById(message_id));
+    }
+
+    /**
+     * the messages posted by account_id in message_id order, read in keyset
+     * pages of STREAM_PAGE_SIZE like findAll
+     */
+    public Flux<Message> findByPostedBy(int account_id) {
+        return page(account_id, 0)
+                .expand(page -> page.size() < STREAM_PAGE_SIZE ? Mono.empty()
+                        : page(account_id, page.get(page.size() - 1).getMessageId()))
+                .concatMapIterable(page -> page, 1);
+    }
+
+    private Mono<List<Message>> page(int after) {
+        return blocking(() -> messageService.findAfter(after, STREAM_PAGE_SIZE));
+    }
+
+    private Mono<List<Message>> page(int account_id, int after) {
+        return blocking(() -> messageService.findTimelineSince(account_id, null, after, STREAM_PAGE_SIZE));
+    }
+
+    /**
+     * a null result completes empty
+     */
+    private <T> Mono<T> blocking(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(jdbcScheduler);
+    }
+}
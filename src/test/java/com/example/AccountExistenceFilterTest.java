@@ -0,0 +1,124 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.entity.Account;
+import com.example.repository.AccountRepository;
+import com.example.service.AccountService;
+
+public class AccountExistenceFilterTest {
+	ApplicationContext app;
+    HttpClient webClient;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private HttpResponse<String> post(String path, String json) throws IOException, InterruptedException {
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private String metrics() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/actuator/prometheus"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        return response.body();
+    }
+
+    /**
+     * Sending http requests to POST localhost:8080/login for an unknown username and
+     * POST localhost:8080/messages for an unknown postedBy, then GET localhost:8080/actuator/prometheus
+     *
+     * Expected Response:
+     *  Status Code: 401, 400, then 200
+     *  Response Body: negative filter checks for both, and no account repository lookups
+     */
+    @Test
+    public void unknownAccountsAreRejectedWithoutQuery() throws IOException, InterruptedException {
+        HttpResponse<String> response = post("/login", "{\"username\":\"nobody\",\"password\":\"password\"}");
+        Assertions.assertEquals(401, response.statusCode(), "Expected Status Code 401 - Actual Code was: " + response.statusCode());
+        response = post("/messages", "{\"postedBy\":12345,\"messageText\": \"hello\",\"timePostedEpoch\": 1669947792}");
+        Assertions.assertEquals(400, response.statusCode(), "Expected Status Code 400 - Actual Code was: " + response.statusCode());
+
+        String body = metrics();
+        Assertions.assertTrue(body.contains("bloom_filter_checks_total{filter=\"account.username\",result=\"negative\",} 1.0"));
+        Assertions.assertTrue(body.contains("bloom_filter_checks_total{filter=\"account.id\",result=\"negative\",} 1.0"));
+        Assertions.assertTrue(body.contains("bloom_filter_false_positives_total{filter=\"account.id\",}"));
+        Assertions.assertTrue(body.contains("bloom_filter_size{filter=\"account.username\",} 4.0"));
+        Assertions.assertFalse(body.contains("method=\"findByUsername\",repository=\"AccountRepository\""));
+        Assertions.assertFalse(body.contains("method=\"findByAccountId\",repository=\"AccountRepository\""));
+    }
+
+    /**
+     * Inserting an account with AccountRepository, past AccountService and its filters, then sending an http
+     * request to POST localhost:8080/messages for it before and after rebuilding the filters
+     *
+     * Expected Response:
+     *  Status Code: 400 while the filters have not seen the account, 200 once they are rebuilt
+     *  Response Body: the rebuilt filters hold every account
+     */
+    @Test
+    public void accountsInsertedPastServiceAreFoundAfterRebuild() throws IOException, InterruptedException {
+        Account inserted = app.getBean(AccountRepository.class).save(new Account("bulkloaded", "password"));
+        String json = "{\"postedBy\":" + inserted.getAccountId() + ",\"messageText\": \"hello\",\"timePostedEpoch\": 1669947792}";
+        HttpResponse<String> response = post("/messages", json);
+        Assertions.assertEquals(400, response.statusCode(), "Expected Status Code 400 - Actual Code was: " + response.statusCode());
+
+        AccountService accountService = app.getBean(AccountService.class);
+        accountService.rebuildExistenceFilters();
+        Assertions.assertTrue(accountService.getUsernameFilter().mightContain("bulkloaded"));
+        Assertions.assertTrue(accountService.getAccountIdFilter().mightContain(inserted.getAccountId()));
+        Assertions.assertEquals(5, accountService.getUsernameFilter().getInsertionCount());
+        response = post("/messages", json);
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+    }
+
+    /**
+     * Sending http requests to POST localhost:8080/register then POST localhost:8080/login
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the account registered after startup is found
+     */
+    @Test
+    public void registeredAccountPassesFilter() throws IOException, InterruptedException {
+        String json = "{\"username\":\"newcomer\",\"password\":\"secret\"}";
+        HttpResponse<String> response = post("/register", json);
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        response = post("/login", json);
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+    }
+}
@@ -0,0 +1,146 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.dto.MessageBatchResult;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class AdmissionControlTest {
+    private static final String[] ARGS = new String[] {
+            "--app.admission.client.rate-per-second=0.01", "--app.admission.client.burst=5",
+            "--app.admission.account.rate-per-second=0.01", "--app.admission.account.burst=2" };
+
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app with small write limits, and create a new
+     * webClient and ObjectMapper for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app = SpringApplication.run(SocialMediaApp.class, ARGS);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private HttpResponse<String> post(String path, String json) throws IOException, InterruptedException {
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Sending http requests to POST localhost:8080/messages three times for account 9999, once for 9998,
+     * then POST localhost:8080/messages/batch for both
+     *
+     * Expected Response:
+     *  Status Code: 200, 200, 429 for 9999 and 200 for 9998
+     *  Response Body: batch results 429 for 9999 and 200 for 9998
+     */
+    @Test
+    public void accountOverRateIsRejected() throws IOException, InterruptedException {
+        String json = "{\"postedBy\":9999,\"messageText\": \"hello\",\"timePostedEpoch\": 1669947792}";
+        Assertions.assertEquals(200, post("/messages", json).statusCode());
+        Assertions.assertEquals(200, post("/messages", json).statusCode());
+        HttpResponse<String> response = post("/messages", json);
+        Assertions.assertEquals(429, response.statusCode(), "Expected Status Code 429 - Actual Code was: " + response.statusCode());
+        response = post("/messages", "{\"postedBy\":9998,\"messageText\": \"hello\",\"timePostedEpoch\": 1669947792}");
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+
+        response = post("/messages/batch", "[{\"postedBy\":9999,\"messageText\": \"hello\",\"timePostedEpoch\": 1669947792},"
+                + "{\"postedBy\":9998,\"messageText\": \"hello\",\"timePostedEpoch\": 1669947792}]");
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        List<MessageBatchResult> results = objectMapper.readValue(response.body().toString(),
+                new TypeReference<List<MessageBatchResult>>(){});
+        Assertions.assertEquals(429, results.get(0).getStatus(), "Actual="+results);
+        Assertions.assertEquals(200, results.get(1).getStatus(), "Actual="+results);
+
+        String metrics = get("/actuator/prometheus").body();
+        Assertions.assertTrue(metrics.contains("admission_rejected_total{reason=\"account\",} 2.0"));
+    }
+
+    /**
+     * Sending http requests to POST localhost:8080/messages/batch with three messages for account 9999 and
+     * one for 9998, then with two messages for 9999
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: batch results 200 for the first two messages of 9999, its whole burst, 200 for 9998 and
+     *  429 for the third message of 9999, then 429 for both messages of 9999
+     */
+    @Test
+    public void batchIsAdmittedUpToAvailablePermits() throws IOException, InterruptedException {
+        String message9999 = "{\"postedBy\":9999,\"messageText\": \"hello\",\"timePostedEpoch\": 1669947792}";
+        String message9998 = "{\"postedBy\":9998,\"messageText\": \"hello\",\"timePostedEpoch\": 1669947792}";
+        HttpResponse<String> response = post("/messages/batch",
+                "[" + message9999 + "," + message9999 + "," + message9998 + "," + message9999 + "]");
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        List<MessageBatchResult> results = objectMapper.readValue(response.body().toString(),
+                new TypeReference<List<MessageBatchResult>>(){});
+        Assertions.assertEquals(List.of(200, 200, 200, 429),
+                results.stream().map(MessageBatchResult::getStatus).collect(Collectors.toList()), "Actual="+results);
+
+        response = post("/messages/batch", "[" + message9999 + "," + message9999 + "]");
+        results = objectMapper.readValue(response.body().toString(), new TypeReference<List<MessageBatchResult>>(){});
+        Assertions.assertEquals(List.of(429, 429),
+                results.stream().map(MessageBatchResult::getStatus).collect(Collectors.toList()), "Actual="+results);
+    }
+
+    /**
+     * Sending http requests to DELETE localhost:8080/messages/1234 six times, then GET localhost:8080/messages
+     *
+     * Expected Response:
+     *  Status Code: 200 five times, then 429. Reads are not limited
+     */
+    @Test
+    public void clientOverRateIsRejected() throws IOException, InterruptedException {
+        HttpRequest deleteRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/1234"))
+                .DELETE()
+                .build();
+        for (int i = 0; i < 5; i++) {
+            Assertions.assertEquals(200, webClient.send(deleteRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+        }
+        HttpResponse<String> response = webClient.send(deleteRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(429, response.statusCode(), "Expected Status Code 429 - Actual Code was: " + response.statusCode());
+        Assertions.assertEquals(200, get("/messages").statusCode());
+
+        String metrics = get("/actuator/prometheus").body();
+        Assertions.assertTrue(metrics.contains("admission_rejected_total{reason=\"client\",} 1.0"));
+        Assertions.assertTrue(metrics.contains("admission_writes_active 0.0"));
+    }
+}
@@ -0,0 +1,90 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.dto.MessageBatchResult;
+import com.example.entity.Message;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class CreateMessagesBatchTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages/batch with a mix of valid and invalid messages,
+     * and a null element
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: one result per message, created messages contain their messageId
+     */
+    @Test
+    public void createMessagesBatchPartialSuccess() throws IOException, InterruptedException {
+        String json = "["
+                + "{\"postedBy\":9999,\"messageText\": \"first\",\"timePostedEpoch\": 1669947792},"
+                + "{\"postedBy\":9999,\"messageText\": \"\",\"timePostedEpoch\": 1669947792},"
+                + "{\"postedBy\":5050,\"messageText\": \"unknown poster\",\"timePostedEpoch\": 1669947792},"
+                + "{\"postedBy\":9998,\"messageText\": \"second\",\"timePostedEpoch\": 1669947793},"
+                + "null"
+                + "]";
+        HttpRequest postMessagesRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postMessagesRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        List<MessageBatchResult> actualResult = objectMapper.readValue(response.body().toString(),
+                new TypeReference<List<MessageBatchResult>>(){});
+        Assertions.assertEquals(5, actualResult.size(), "Actual="+actualResult);
+        Assertions.assertEquals(200, actualResult.get(0).getStatus());
+        Assertions.assertEquals(new Message(1, 9999, "first", 1669947792L), actualResult.get(0).getMessage());
+        Assertions.assertEquals(400, actualResult.get(1).getStatus());
+        Assertions.assertEquals(400, actualResult.get(2).getStatus());
+        Assertions.assertEquals(200, actualResult.get(3).getStatus());
+        Assertions.assertEquals(new Message(2, 9998, "second", 1669947793L), actualResult.get(3).getMessage());
+        Assertions.assertEquals(400, actualResult.get(4).getStatus());
+
+        HttpRequest getMessagesRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .build();
+        response = webClient.send(getMessagesRequest, HttpResponse.BodyHandlers.ofString());
+        List<Message> allMessages = objectMapper.readValue(response.body().toString(), new TypeReference<List<Message>>(){});
+        Assertions.assertEquals(5, allMessages.size(), "Actual="+allMessages);
+    }
+}
@@ -0,0 +1,110 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.service.AccountService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+public class DuplicateRegistrationTest {
+	ApplicationContext app;
+    HttpClient webClient;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient for interacting locally
+     * on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private HttpRequest register(String username) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/register"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"" + username + "\",\"password\":\"password\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+    }
+
+    private double encodeCount() {
+        return app.getBean(MeterRegistry.class).get("password.hash").tag("operation", "encode").timer().count();
+    }
+
+    /**
+     * Sending 8 concurrent http requests to POST localhost:8080/register with the same new username
+     *
+     * Expected Response:
+     *  Status Code: 200 for exactly one of the requests, 409 for every other one
+     */
+    @Test
+    public void registerUserConcurrently() {
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            responses.add(webClient.sendAsync(register("racer"), HttpResponse.BodyHandlers.ofString()));
+        }
+        int created = 0;
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            int status = response.join().statusCode();
+            Assertions.assertTrue(status == 200 || status == 409, "Expected Status Code 200 or 409 - Actual Code was: " + status);
+            if (status == 200) {
+                created++;
+            }
+        }
+        Assertions.assertEquals(1, created, "Expected exactly one registration to succeed");
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/register with the username of a seeded account that is not
+     * cached, then the same request again
+     *
+     * Expected Response:
+     *  Status Code: 409 both times. The first request hashes the password and fails its insert, the second is
+     *  rejected from the cache without hashing or querying
+     */
+    @Test
+    public void takenUsernameIsCachedAfterFailedInsert() throws IOException, InterruptedException {
+        Assertions.assertFalse(app.getBean(AccountService.class).isCachedUsername("testuser3"));
+        Statistics statistics = app.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        double hashes = encodeCount();
+
+        int status = webClient.send(register("testuser3"), HttpResponse.BodyHandlers.ofString()).statusCode();
+        Assertions.assertEquals(409, status, "Expected Status Code 409 - Actual Code was: " + status);
+        Assertions.assertEquals(hashes + 1, encodeCount());
+        Assertions.assertTrue(app.getBean(AccountService.class).isCachedUsername("testuser3"));
+
+        long statements = statistics.getPrepareStatementCount();
+        status = webClient.send(register("testuser3"), HttpResponse.BodyHandlers.ofString()).statusCode();
+        Assertions.assertEquals(409, status, "Expected Status Code 409 - Actual Code was: " + status);
+        Assertions.assertEquals(hashes + 1, encodeCount());
+        Assertions.assertEquals(statements, statistics.getPrepareStatementCount());
+    }
+}
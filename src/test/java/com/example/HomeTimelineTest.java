@@ -0,0 +1,147 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.cache.BoundedCache;
+import com.example.entity.Message;
+import com.example.service.FollowService;
+import com.example.timeline.HomeTimeline;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class HomeTimelineTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app with accounts followed by two others counted as
+     * celebrities, and create a new webClient and ObjectMapper for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] { "--app.timeline.celebrity-followers=2" };
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private HttpResponse<String> send(String method, String path, String json) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .method(method, json == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private List<Message> home(String query) throws IOException, InterruptedException {
+        HttpResponse<String> response = send("GET", "/accounts/9998/home" + query, null);
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        return objectMapper.readValue(response.body().toString(), new TypeReference<List<Message>>(){});
+    }
+
+    private Message post(int postedBy) throws IOException, InterruptedException {
+        HttpResponse<String> response = send("POST", "/messages",
+                "{\"postedBy\":" + postedBy + ",\"messageText\": \"hello\",\"timePostedEpoch\": 1669947793}");
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        return objectMapper.readValue(response.body().toString(), Message.class);
+    }
+
+    /**
+     * Sending http requests to POST localhost:8080/accounts/9998/following/9999, GET localhost:8080/accounts/9998/home,
+     * POST localhost:8080/messages for 9999, then DELETE the message and DELETE the follow
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the home timeline of 9998 gains the message pushed on posting, and loses it on deletion and
+     *  every message of 9999 on unfollowing
+     */
+    @Test
+    public void messagesAreFannedOutToFollowers() throws IOException, InterruptedException {
+        Assertions.assertEquals(400, send("POST", "/accounts/9998/following/9998", null).statusCode());
+        Assertions.assertEquals(400, send("POST", "/accounts/9998/following/1234", null).statusCode());
+        Assertions.assertEquals(200, send("POST", "/accounts/9998/following/9999", null).statusCode());
+        Message seeded = new Message(9999, 9999, "test message 1", 1669947792L);
+        Assertions.assertEquals(List.of(seeded), home(""));
+
+        Message posted = post(9999);
+        Assertions.assertTrue(Arrays.stream(app.getBean(HomeTimeline.class).getRings().peek(9998).snapshot())
+                .anyMatch(id -> id == posted.getMessageId()), "Expected the message to be pushed");
+        Assertions.assertEquals(List.of(seeded, posted), home(""));
+        Assertions.assertEquals(List.of(posted), home("?beforeId=9999&limit=1"));
+
+        Assertions.assertEquals(200, send("DELETE", "/messages/" + posted.getMessageId(), null).statusCode());
+        Assertions.assertEquals(List.of(seeded), home(""));
+
+        HttpResponse<String> response = send("DELETE", "/accounts/9998/following/9999", null);
+        Assertions.assertEquals("1", response.body().toString());
+        Assertions.assertEquals(List.of(), home(""));
+        Assertions.assertEquals(400, send("GET", "/accounts/9998/home?limit=0", null).statusCode());
+    }
+
+    /**
+     * Sending http requests to POST localhost:8080/accounts/9998/following/9999 and
+     * POST localhost:8080/accounts/9997/following/9999, then POST localhost:8080/messages for 9999 and
+     * GET localhost:8080/accounts/9998/home
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the home timeline of 9998 contains the messages of 9999, pulled when read instead of pushed
+     */
+    @Test
+    public void celebrityMessagesArePulled() throws IOException, InterruptedException {
+        Assertions.assertEquals(200, send("POST", "/accounts/9998/following/9999", null).statusCode());
+        Assertions.assertEquals(200, send("POST", "/accounts/9997/following/9999", null).statusCode());
+        Message own = post(9998);
+        Assertions.assertEquals(List.of(own), home("?beforeId=9999"));
+
+        Message posted = post(9999);
+        Assertions.assertEquals(0, Arrays.stream(app.getBean(HomeTimeline.class).getRings().peek(9998).snapshot())
+                .filter(id -> id == posted.getMessageId()).count(), "Expected the message not to be pushed");
+        Message seeded = new Message(9999, 9999, "test message 1", 1669947792L);
+        Assertions.assertEquals(List.of(seeded, posted, own), home(""));
+    }
+
+    /**
+     * Takes the stamp of the follower cache as a lookup of the followers of 9999 would, then sends an http request
+     * to POST localhost:8080/accounts/9998/following/9999 before caching the followers read with that stamp
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the followers read before the follow are not cached, the next lookup includes 9998
+     */
+    @Test
+    public void staleFollowersAreNotCachedAfterFollow() throws IOException, InterruptedException {
+        FollowService followService = app.getBean(FollowService.class);
+        BoundedCache<Integer, int[]> cache = followService.getFollowerCache();
+        long stamp = cache.stamp();
+        int[] stale = new int[0];
+
+        Assertions.assertEquals(200, send("POST", "/accounts/9998/following/9999", null).statusCode());
+        Assertions.assertFalse(cache.putIfNotInvalidatedSince(9999, stale, stamp));
+        Assertions.assertTrue(Arrays.stream(followService.findFollowerIds(9999)).anyMatch(id -> id == 9998));
+        Assertions.assertSame(followService.findFollowerIds(9999), cache.get(9999));
+    }
+}
@@ -0,0 +1,100 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.dto.MessageBatchResult;
+import com.example.entity.Account;
+import com.example.entity.Message;
+import com.example.json.EntityJsonSerializers;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class JsonSerializationTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Serializes messages, accounts and batch results with the app's ObjectMapper and with a default one
+     *
+     * Expected Response:
+     *  the app's ObjectMapper uses the hand-written serializers and writes the same bytes as the default one
+     */
+    @Test
+    public void serializersMatchDefaultOutput() throws IOException {
+        ObjectMapper appObjectMapper = app.getBean(ObjectMapper.class);
+        Assertions.assertEquals(EntityJsonSerializers.MessageSerializer.class,
+                appObjectMapper.getSerializerProviderInstance().findValueSerializer(Message.class).getClass());
+        Assertions.assertEquals(EntityJsonSerializers.AccountSerializer.class,
+                appObjectMapper.getSerializerProviderInstance().findValueSerializer(Account.class).getClass());
+
+        List<Object> values = List.of(
+                new Message(1, 9999, "hello", 1669947792L),
+                new Message(Integer.MAX_VALUE, -1, "\"quoted\" \\ \n\t\u0001 héllo ☃ 😀 </script>", Long.MIN_VALUE),
+                new Message(),
+                new Account(9999, "testuser1", "password"),
+                new Account(),
+                List.of(new Message(2, 9998, "", 0L), new Message(3, null, null, null)),
+                List.of(MessageBatchResult.created(new Message(4, 9997, "batch", 5L)), new MessageBatchResult(400, null)));
+        for (Object value : values) {
+            byte[] expected = objectMapper.writeValueAsBytes(value);
+            byte[] actual = appObjectMapper.writeValueAsBytes(value);
+            Assertions.assertTrue(Arrays.equals(expected, actual),
+                    "Expected=" + new String(expected, "UTF-8") + ", Actual=" + new String(actual, "UTF-8"));
+            Assertions.assertEquals(objectMapper.writeValueAsString(value), appObjectMapper.writeValueAsString(value));
+        }
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the bytes a default ObjectMapper writes for the seeded messages
+     */
+    @Test
+    public void listResponseMatchesDefaultOutput() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .build();
+        HttpResponse<byte[]> response = webClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        List<Message> expected = List.of(
+                new Message(9996, 9996, "test message 3", 1669947792L),
+                new Message(9997, 9997, "test message 2", 1669947792L),
+                new Message(9999, 9999, "test message 1", 1669947792L));
+        Assertions.assertArrayEquals(objectMapper.writeValueAsBytes(expected), response.body());
+    }
+}
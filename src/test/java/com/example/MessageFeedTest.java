@@ -0,0 +1,214 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+
+import com.example.entity.Message;
+import com.example.feed.MessageFeed;
+import com.example.service.FollowService;
+import com.example.service.MessageService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class MessageFeedTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Subscribing to GET localhost:8080/accounts/9999/messages/feed, then creating a message for
+     * account 9998 and one for account 9999
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: a created event for the message of account 9999 only
+     */
+    @Test
+    public void accountFeedReceivesCreatedMessage() throws Exception {
+        HttpRequest feedRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/9999/messages/feed"))
+                .build();
+        HttpResponse<Stream<String>> feed = webClient.send(feedRequest, HttpResponse.BodyHandlers.ofLines());
+        int status = feed.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        Iterator<String> lines = feed.body().iterator();
+
+        for (int postedBy : new int[] {9998, 9999}) {
+            HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/messages"))
+                    .POST(HttpRequest.BodyPublishers.ofString("{"+
+                            "\"postedBy\":" + postedBy + ", " +
+                            "\"messageText\": \"live message\", " +
+                            "\"timePostedEpoch\": 1669947792}"))
+                    .header("Content-Type", "application/json")
+                    .build();
+            HttpResponse<String> response = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+            Assertions.assertEquals(200, response.statusCode());
+        }
+
+        CompletableFuture<String[]> firstEvent = CompletableFuture.supplyAsync(() -> {
+            String name = null;
+            while (lines.hasNext()) {
+                String line = lines.next();
+                if (line.startsWith("event:")) {
+                    name = line.substring("event:".length());
+                } else if (line.startsWith("data:")) {
+                    return new String[] {name, line.substring("data:".length())};
+                }
+            }
+            return null;
+        });
+        String[] event = firstEvent.get(10, TimeUnit.SECONDS);
+        feed.body().close();
+
+        Assertions.assertEquals("created", event[0]);
+        Message expectedResult = new Message(2, 9999, "live message", 1669947792L);
+        Message actualResult = objectMapper.readValue(event[1], Message.class);
+        Assertions.assertEquals(expectedResult, actualResult, "Expected="+expectedResult + ", Actual="+actualResult);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/actuator/prometheus after opening a feed
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: one open feed subscription
+     */
+    @Test
+    public void feedSubscribersArePublished() throws IOException, InterruptedException {
+        HttpRequest feedRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/feed"))
+                .build();
+        HttpResponse<Stream<String>> feed = webClient.send(feedRequest, HttpResponse.BodyHandlers.ofLines());
+        Assertions.assertEquals(200, feed.statusCode());
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/actuator/prometheus"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        feed.body().close();
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        Assertions.assertTrue(response.body().contains("feed_subscribers 1.0"), response.body());
+    }
+
+    /**
+     * Subscribing to GET localhost:8080/messages/feed, then closing the client, stopping the web server and
+     * shutting the feed down
+     *
+     * Expected Response:
+     *  the shutdown completes without an exception although the connection is already torn down, and leaves
+     *  no subscribers
+     */
+    @Test
+    public void shutdownSkipsTornDownConnections() throws IOException, InterruptedException {
+        HttpRequest feedRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/feed"))
+                .build();
+        HttpResponse<Stream<String>> feed = webClient.send(feedRequest, HttpResponse.BodyHandlers.ofLines());
+        Assertions.assertEquals(200, feed.statusCode());
+        MessageFeed messageFeed = app.getBean(MessageFeed.class);
+        Assertions.assertEquals(1, messageFeed.getSubscriberCount());
+
+        feed.body().close();
+        Thread.sleep(500);
+        ((ServletWebServerApplicationContext) app).getWebServer().stop();
+        Assertions.assertDoesNotThrow(messageFeed::shutdown);
+        Assertions.assertEquals(0, messageFeed.getSubscriberCount());
+    }
+
+    /**
+     * Subscribing to GET localhost:8080/accounts/9999/messages/feed, then sending http requests to
+     * PATCH localhost:8080/messages/9999 and DELETE localhost:8080/messages/9999 with the message not cached
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: an updated and a deleted event carrying the whole message, taken from the row the update
+     *  and delete statements return. One statement per request
+     */
+    @Test
+    public void uncachedChangesArePublishedWithoutReading() throws Exception {
+        HttpRequest feedRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/9999/messages/feed"))
+                .build();
+        HttpResponse<Stream<String>> feed = webClient.send(feedRequest, HttpResponse.BodyHandlers.ofLines());
+        Assertions.assertEquals(200, feed.statusCode());
+        Iterator<String> lines = feed.body().iterator();
+
+        // the home timelines look the followers of 9999 up on deletion, from the cache once loaded
+        app.getBean(FollowService.class).findFollowerIds(9999);
+        app.getBean(MessageService.class).getMessageCache().clear();
+        app.getBean(MessageService.class).getOffHeapStore().clear();
+        Statistics statistics = app.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        long statements = statistics.getPrepareStatementCount();
+        HttpRequest patchRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\": \"patched\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assertions.assertEquals("1", webClient.send(patchRequest, HttpResponse.BodyHandlers.ofString()).body());
+        Assertions.assertEquals(statements + 1, statistics.getPrepareStatementCount());
+        HttpRequest deleteRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .DELETE()
+                .build();
+        Assertions.assertEquals("1", webClient.send(deleteRequest, HttpResponse.BodyHandlers.ofString()).body());
+        Assertions.assertEquals(statements + 2, statistics.getPrepareStatementCount());
+
+        CompletableFuture<String> events = CompletableFuture.supplyAsync(() -> {
+            StringBuilder received = new StringBuilder();
+            int count = 0;
+            while (count < 2 && lines.hasNext()) {
+                String line = lines.next();
+                if (line.startsWith("event:") || line.startsWith("data:")) {
+                    received.append(line).append('\n');
+                    count += line.startsWith("data:") ? 1 : 0;
+                }
+            }
+            return received.toString();
+        });
+        String received = events.get(10, TimeUnit.SECONDS);
+        feed.body().close();
+        Assertions.assertEquals("event:updated\ndata:" + objectMapper.writeValueAsString(
+                new Message(9999, 9999, "patched", 1669947792L)) + "\nevent:deleted\ndata:"
+                + objectMapper.writeValueAsString(new Message(9999, 9999, "patched", 1669947792L)) + "\n", received);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+public class MetricsEndpointTest {
+	ApplicationContext app;
+    HttpClient webClient;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/actuator/prometheus after GET localhost:8080/messages/9999
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: request, repository, connection pool, hibernate and cache metrics
+     */
+    @Test
+    public void prometheusExposesHotPathMetrics() throws IOException, InterruptedException {
+        HttpRequest getMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .build();
+        webClient.send(getMessageRequest, HttpResponse.BodyHandlers.ofString());
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/actuator/prometheus"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        String body = response.body();
+        Assertions.assertTrue(body.contains("http_server_requests_seconds_count{exception=\"None\",method=\"GET\","
+                + "outcome=\"SUCCESS\",status=\"200\",uri=\"/messages/{message_id}\",}"));
+        Assertions.assertTrue(body.contains("http_server_requests_active"));
+        Assertions.assertTrue(body.contains("spring_data_repository_invocations_seconds_count{exception=\"None\","
+                + "method=\"findByMessageId\",repository=\"MessageRepository\",state=\"SUCCESS\",}"));
+        Assertions.assertTrue(body.contains("hikaricp_connections_active"));
+        Assertions.assertTrue(body.contains("hibernate_query_executions_total"));
+        Assertions.assertTrue(body.contains("cache_gets_total{cache=\"message\",result=\"miss\",}"));
+        Assertions.assertTrue(body.contains("hibernate_second_level_cache_requests_total{entityManagerFactory=\"entityManagerFactory\","
+                + "region=\"com.example.entity.Message\",result=\"miss\",}"));
+        Assertions.assertTrue(body.contains("hibernate_cache_query_requests_total"));
+    }
+}
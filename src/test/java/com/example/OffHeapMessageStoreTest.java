@@ -0,0 +1,148 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.cache.BoundedCache;
+import com.example.cache.OffHeapMessageStore;
+import com.example.entity.Message;
+import com.example.service.MessageService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class OffHeapMessageStoreTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app with a 2 slab off-heap store, and create a new
+     * webClient and ObjectMapper for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] { "--app.cache.message.off-heap.size-mb=2" };
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Sending http requests to POST localhost:8080/messages, then GET localhost:8080/messages/{message_id} and
+     * GET localhost:8080/accounts/9999/messages?limit=10 once the on-heap cache is cleared
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the posted message, read back from the off-heap store
+     */
+    @Test
+    public void messagesAreServedFromOffHeap() throws IOException, InterruptedException {
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"postedBy\":9999,\"messageText\": \"héllo ☃\",\"timePostedEpoch\": 1669947800}"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        Message posted = objectMapper.readValue(response.body().toString(), Message.class);
+
+        MessageService messageService = app.getBean(MessageService.class);
+        OffHeapMessageStore store = messageService.getOffHeapStore();
+        messageService.getMessageCache().clear();
+        response = get("/messages/" + posted.getMessageId());
+        Assertions.assertEquals(posted, objectMapper.readValue(response.body().toString(), Message.class));
+        Assertions.assertEquals(1, store.getHitCount());
+
+        messageService.getMessageCache().clear();
+        response = get("/accounts/9999/messages?limit=10");
+        List<Message> timeline = objectMapper.readValue(response.body().toString(), new TypeReference<List<Message>>(){});
+        Assertions.assertEquals(List.of(posted, new Message(9999, 9999, "test message 1", 1669947792L)), timeline);
+        Assertions.assertEquals(2, store.getHitCount());
+    }
+
+    /**
+     * Puts messages directly into the off-heap store until the log wraps past its first slab
+     *
+     * Expected Response:
+     *  the newest messages are found, the oldest are forgotten, and null fields survive the round trip
+     */
+    @Test
+    public void oldestSlabIsReclaimed() {
+        OffHeapMessageStore store = app.getBean(MessageService.class).getOffHeapStore();
+        store.clear();
+        String text = "x".repeat(200);
+        int count = 3 * OffHeapMessageStore.SLAB_SIZE / 221;
+        for (int i = 1; i <= count; i++) {
+            store.put(new Message(i, i % 7, text, (long) i));
+        }
+        Assertions.assertNull(store.get(1));
+        Assertions.assertEquals(new Message(count, count % 7, text, (long) count), store.get(count));
+
+        store.put(new Message(count + 1, null, null, null));
+        Assertions.assertEquals(new Message(count + 1, null, null, null), store.get(count + 1));
+        store.invalidate(count + 1);
+        Assertions.assertNull(store.get(count + 1));
+    }
+
+    /**
+     * Takes the stamps of both cache tiers as a read of message 9999 would, then sends an http request to
+     * PATCH localhost:8080/messages/9999 before caching the message read with those stamps
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: neither tier caches the message read before the patch, GET localhost:8080/messages/9999
+     *  returns the patched message
+     */
+    @Test
+    public void staleReadIsNotCachedAfterUpdate() throws IOException, InterruptedException {
+        MessageService messageService = app.getBean(MessageService.class);
+        BoundedCache<Integer, Message> cache = messageService.getMessageCache();
+        OffHeapMessageStore store = messageService.getOffHeapStore();
+        long heapStamp = cache.stamp();
+        long offHeapStamp = store.stamp();
+        Message stale = new Message(9999, 9999, "test message 1", 1669947792L);
+
+        HttpRequest patchRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\": \"patched\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(patchRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        Assertions.assertFalse(cache.putIfNotInvalidatedSince(9999, stale, heapStamp));
+        Assertions.assertFalse(store.putIfNotInvalidatedSince(stale, offHeapStamp));
+
+        Message patched = new Message(9999, 9999, "patched", 1669947792L);
+        response = get("/messages/9999");
+        Assertions.assertEquals(patched, objectMapper.readValue(response.body().toString(), Message.class));
+        Assertions.assertEquals(patched, cache.get(9999));
+        Assertions.assertEquals(patched, store.get(9999));
+    }
+}
@@ -0,0 +1,100 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.entity.Account;
+import com.example.repository.AccountRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class PasswordHashingTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private HttpResponse<String> post(String path, String json) throws IOException, InterruptedException {
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Sending http requests to POST localhost:8080/register then POST localhost:8080/login twice
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the account with the submitted password, while only a bcrypt hash is stored
+     */
+    @Test
+    public void registeredPasswordIsHashed() throws IOException, InterruptedException {
+        String json = "{\"username\":\"hashed\",\"password\":\"secret\"}";
+        HttpResponse<String> response = post("/register", json);
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        Account registered = objectMapper.readValue(response.body().toString(), Account.class);
+        Assertions.assertEquals("secret", registered.getPassword());
+
+        String stored = app.getBean(AccountRepository.class).findByUsername("hashed").getPassword();
+        Assertions.assertTrue(stored.startsWith("{bcrypt}$2a$"), "Stored password was " + stored);
+
+        for (int i = 0; i < 2; i++) {
+            response = post("/login", json);
+            Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+            Account actualResult = objectMapper.readValue(response.body().toString(), Account.class);
+            Assertions.assertEquals(registered, actualResult, "Expected="+registered + ", Actual="+actualResult);
+        }
+        response = post("/login", "{\"username\":\"hashed\",\"password\":\"wrong\"}");
+        Assertions.assertEquals(401, response.statusCode(), "Expected Status Code 401 - Actual Code was: " + response.statusCode());
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/login for an account seeded with a plaintext password
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the account, whose stored password has been rehashed with bcrypt
+     */
+    @Test
+    public void plaintextPasswordIsMigratedOnLogin() throws IOException, InterruptedException {
+        AccountRepository accountRepository = app.getBean(AccountRepository.class);
+        Assertions.assertEquals("{noop}password", accountRepository.findByUsername("testuser2").getPassword());
+
+        HttpResponse<String> response = post("/login", "{\"username\":\"testuser2\",\"password\":\"password\"}");
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+
+        String stored = accountRepository.findByUsername("testuser2").getPassword();
+        Assertions.assertTrue(stored.startsWith("{bcrypt}$2a$"), "Stored password was " + stored);
+    }
+}
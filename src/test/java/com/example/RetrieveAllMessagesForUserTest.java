@@ -8,6 +8,10 @@ import java.net.http.HttpResponse;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -83,4 +87,49 @@ public class RetrieveAllMessagesForUserTest {
         List<Message> actualResult = objectMapper.readValue(response.body().toString(), new TypeReference<List<Message>>(){});
         Assertions.assertTrue(actualResult.isEmpty(), "Expected Empty Result, but Result was not Empty");
     }
+
+    private List<Message> getMessages(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        return objectMapper.readValue(response.body().toString(), new TypeReference<List<Message>>(){});
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/accounts/9999/messages twice, then PATCH
+     * localhost:8080/messages/9999 and DELETE it, with the message not cached by MessageService, reading the
+     * account's messages after each
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the second read is served from the query cache, the reads after the patch and the delete
+     *  see the change
+     */
+    @Test
+    public void cachedMessagesFromUserSeeChanges() throws IOException, InterruptedException {
+        Statistics statistics = app.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        Message seeded = new Message(9999, 9999, "test message 1", 1669947792L);
+        Assertions.assertEquals(List.of(seeded), getMessages("/accounts/9999/messages"));
+        long hits = statistics.getQueryCacheHitCount();
+        Assertions.assertEquals(List.of(seeded), getMessages("/accounts/9999/messages"));
+        Assertions.assertEquals(hits + 1, statistics.getQueryCacheHitCount());
+
+        HttpRequest patchRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\": \"patched\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assertions.assertEquals(200, webClient.send(patchRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+        Assertions.assertEquals(List.of(new Message(9999, 9999, "patched", 1669947792L)),
+                getMessages("/accounts/9999/messages"));
+
+        HttpRequest deleteRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .DELETE()
+                .build();
+        Assertions.assertEquals(200, webClient.send(deleteRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+        Assertions.assertEquals(List.of(), getMessages("/accounts/9999/messages"));
+    }
 }
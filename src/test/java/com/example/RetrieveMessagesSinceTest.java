@@ -0,0 +1,155 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.entity.Message;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class RetrieveMessagesSinceTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private Message postMessage(String json) throws IOException, InterruptedException {
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        return objectMapper.readValue(response.body().toString(), Message.class);
+    }
+
+    private List<Message> getMessages(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        return objectMapper.readValue(response.body().toString(), new TypeReference<List<Message>>(){});
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/messages?sinceTime=1669947792&sinceId=9997 and
+     * GET localhost:8080/messages?sinceTime=1669947792
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: only the messages newer than the cursor, oldest first
+     */
+    @Test
+    public void getAllMessagesSinceTime() throws IOException, InterruptedException {
+        Message newer = postMessage("{\"postedBy\":9998,\"messageText\": \"newer\",\"timePostedEpoch\": 1669947800}");
+
+        List<Message> expectedResult = List.of(new Message(9999, 9999, "test message 1", 1669947792L), newer);
+        List<Message> actualResult = getMessages("/messages?sinceTime=1669947792&sinceId=9997");
+        Assertions.assertEquals(expectedResult, actualResult, "Expected="+expectedResult + ", Actual="+actualResult);
+
+        expectedResult = List.of(newer);
+        actualResult = getMessages("/messages?sinceTime=1669947792");
+        Assertions.assertEquals(expectedResult, actualResult, "Expected="+expectedResult + ", Actual="+actualResult);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/9998/messages?sinceId={first message}
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: only the messages of account 9998 posted after the first one
+     */
+    @Test
+    public void getMessagesFromUserSinceId() throws IOException, InterruptedException {
+        Message first = postMessage("{\"postedBy\":9998,\"messageText\": \"first\",\"timePostedEpoch\": 1669947800}");
+        Message second = postMessage("{\"postedBy\":9998,\"messageText\": \"second\",\"timePostedEpoch\": 1669947700}");
+        postMessage("{\"postedBy\":9997,\"messageText\": \"other\",\"timePostedEpoch\": 1669947900}");
+
+        List<Message> expectedResult = List.of(second);
+        List<Message> actualResult = getMessages("/accounts/9998/messages?sinceId=" + first.getMessageId());
+        Assertions.assertEquals(expectedResult, actualResult, "Expected="+expectedResult + ", Actual="+actualResult);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages?after=0&sinceId=0 (two cursors)
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void getAllMessagesMixedCursors() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages?after=0&sinceId=0"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
+    }
+
+    /**
+     * Sending http requests to PATCH localhost:8080/messages/9997, DELETE localhost:8080/messages/9996 and
+     * POST localhost:8080/messages with an older timePostedEpoch, then inserting a message with a lower id as a
+     * late commit would, and GET localhost:8080/messages?sinceTime=1669947792&sinceId=9999
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: an empty list, since only returns rows past the cursor. Every change is seen by a full read
+     */
+    @Test
+    public void getAllMessagesSinceSkipsChangesBehindCursor() throws IOException, InterruptedException {
+        HttpRequest patchRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9997"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\": \"patched\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assertions.assertEquals(200, webClient.send(patchRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+        HttpRequest deleteRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9996"))
+                .DELETE()
+                .build();
+        Assertions.assertEquals(200, webClient.send(deleteRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+        Message older = postMessage("{\"postedBy\":9998,\"messageText\": \"older\",\"timePostedEpoch\": 1669947000}");
+        app.getBean(JdbcTemplate.class).update("insert into message values (9990, 9999, 'late', 1669947792)");
+
+        List<Message> actualResult = getMessages("/messages?sinceTime=1669947792&sinceId=9999");
+        Assertions.assertEquals(List.of(), actualResult, "Actual=" + actualResult);
+
+        List<Message> expectedResult = List.of(older, new Message(9990, 9999, "late", 1669947792L),
+                new Message(9997, 9997, "patched", 1669947792L), new Message(9999, 9999, "test message 1", 1669947792L));
+        actualResult = getMessages("/messages");
+        Assertions.assertEquals(expectedResult, actualResult, "Expected="+expectedResult + ", Actual="+actualResult);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.entity.Message;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class RetrieveTimelineForUserTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private Message postMessage(String json) throws IOException, InterruptedException {
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        return objectMapper.readValue(response.body().toString(), Message.class);
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/accounts/9998/messages?limit=1 and following the cursor
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: one message per page, newest first
+     */
+    @Test
+    public void getTimelineFromUserPaged() throws IOException, InterruptedException {
+        Message older = postMessage("{\"postedBy\":9998,\"messageText\": \"older\",\"timePostedEpoch\": 1669947700}");
+        Message newer = postMessage("{\"postedBy\":9998,\"messageText\": \"newer\",\"timePostedEpoch\": 1669947800}");
+
+        HttpRequest firstPage = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/9998/messages?limit=1"))
+                .build();
+        HttpResponse<String> response = webClient.send(firstPage, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        List<Message> actualResult = objectMapper.readValue(response.body().toString(), new TypeReference<List<Message>>(){});
+        Assertions.assertEquals(List.of(newer), actualResult, "Expected="+List.of(newer) + ", Actual="+actualResult);
+
+        HttpRequest secondPage = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/9998/messages?limit=1&beforeTime="
+                        + newer.getTimePostedEpoch() + "&beforeId=" + newer.getMessageId()))
+                .build();
+        response = webClient.send(secondPage, HttpResponse.BodyHandlers.ofString());
+        status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        actualResult = objectMapper.readValue(response.body().toString(), new TypeReference<List<Message>>(){});
+        Assertions.assertEquals(List.of(older), actualResult, "Expected="+List.of(older) + ", Actual="+actualResult);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/9999/messages?beforeTime=1669947792 (incomplete cursor)
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void getTimelineFromUserIncompleteCursor() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/9999/messages?beforeTime=1669947792"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
+    }
+}
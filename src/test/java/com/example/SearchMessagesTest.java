@@ -0,0 +1,132 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.entity.Message;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class SearchMessagesTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private Message postMessage(String json) throws IOException, InterruptedException {
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        return objectMapper.readValue(response.body().toString(), Message.class);
+    }
+
+    private List<Message> search(String query) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/search?" + query))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        return objectMapper.readValue(response.body().toString(), new TypeReference<List<Message>>(){});
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/search?q=message&limit=2&offset=1
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: two of the seeded messages
+     */
+    @Test
+    public void searchSeededMessagesPaged() throws IOException, InterruptedException {
+        List<Message> actualResult = search("q=message&limit=2&offset=1");
+        Assertions.assertEquals(2, actualResult.size(), "Actual="+actualResult);
+        Assertions.assertTrue(actualResult.stream().allMatch(message -> message.getMessageText().startsWith("test message")));
+    }
+
+    /**
+     * Creating, patching and deleting messages then sending http requests to
+     * GET localhost:8080/messages/search?q=quick
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the matching messages best match first, following every change
+     */
+    @Test
+    public void searchFollowsChanges() throws IOException, InterruptedException {
+        Message once = postMessage("{\"postedBy\":9999,\"messageText\": \"the quick brown fox\",\"timePostedEpoch\": 1669947792}");
+        Message twice = postMessage("{\"postedBy\":9999,\"messageText\": \"quick quick red fox\",\"timePostedEpoch\": 1669947792}");
+        Message patched = postMessage("{\"postedBy\":9999,\"messageText\": \"lazy dog\",\"timePostedEpoch\": 1669947792}");
+
+        List<Message> actualResult = search("q=quick");
+        Assertions.assertEquals(List.of(twice, once), actualResult, "Actual="+actualResult);
+
+        HttpRequest patchRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/" + patched.getMessageId()))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\": \"quick dog\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assertions.assertEquals(200, webClient.send(patchRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+        HttpRequest deleteRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/" + twice.getMessageId()))
+                .DELETE()
+                .build();
+        Assertions.assertEquals(200, webClient.send(deleteRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        actualResult = search("q=quick");
+        Set<Integer> expectedIds = Set.of(once.getMessageId(), patched.getMessageId());
+        Assertions.assertEquals(2, actualResult.size(), "Actual="+actualResult);
+        Assertions.assertTrue(actualResult.stream().allMatch(message -> expectedIds.contains(message.getMessageId())),
+                "Actual="+actualResult);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/search?q=%20 (blank query)
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void searchBlankQuery() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/search?q=%20"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
+    }
+}
@@ -0,0 +1,120 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+
+import com.example.entity.Message;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+public class WireFormatTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private HttpResponse<byte[]> get(String path, String accept) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path));
+        if (accept != null) {
+            request.header("Accept", accept);
+        }
+        return webClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/messages without Accept, then with Accept application/cbor
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the seeded messages as JSON by default and as a smaller CBOR document when asked for
+     */
+    @Test
+    public void messagesAreNegotiatedAsCbor() throws IOException, InterruptedException {
+        List<Message> expected = List.of(
+                new Message(9996, 9996, "test message 3", 1669947792L),
+                new Message(9997, 9997, "test message 2", 1669947792L),
+                new Message(9999, 9999, "test message 1", 1669947792L));
+        HttpResponse<byte[]> json = get("/messages", null);
+        Assertions.assertEquals(200, json.statusCode(), "Expected Status Code 200 - Actual Code was: " + json.statusCode());
+        Assertions.assertEquals("application/json", json.headers().firstValue("Content-Type").orElse(null));
+        Assertions.assertEquals(expected, objectMapper.readValue(json.body(), new TypeReference<List<Message>>(){}));
+
+        HttpResponse<byte[]> cbor = get("/messages", "application/cbor");
+        Assertions.assertEquals(200, cbor.statusCode(), "Expected Status Code 200 - Actual Code was: " + cbor.statusCode());
+        Assertions.assertEquals("application/cbor", cbor.headers().firstValue("Content-Type").orElse(null));
+        ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+        Assertions.assertTrue(app.getBean(HttpMessageConverters.class).getConverters()
+                .contains(app.getBean(MappingJackson2CborHttpMessageConverter.class)));
+        Assertions.assertEquals(expected, cborMapper.readValue(cbor.body(), new TypeReference<List<Message>>(){}));
+        Assertions.assertArrayEquals(cborMapper.writeValueAsBytes(expected), cbor.body());
+        Assertions.assertTrue(cbor.body().length < json.body().length,
+                "CBOR " + cbor.body().length + " bytes, JSON " + json.body().length + " bytes");
+    }
+
+    /**
+     * Sending http requests to POST localhost:8080/messages with a Smile body, then
+     * GET localhost:8080/accounts/9999/messages with Accept application/x-jackson-smile
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the created message and the messages of 9999, both as Smile
+     */
+    @Test
+    public void messagesArePostedAsSmile() throws IOException, InterruptedException {
+        ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(
+                        smileMapper.writeValueAsBytes(new Message(9999, "hello smile", 1669947800L))))
+                .header("Content-Type", "application/x-jackson-smile")
+                .header("Accept", "application/x-jackson-smile")
+                .build();
+        HttpResponse<byte[]> response = webClient.send(postRequest, HttpResponse.BodyHandlers.ofByteArray());
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        Message posted = smileMapper.readValue(response.body(), Message.class);
+        Assertions.assertEquals("hello smile", posted.getMessageText());
+        Assertions.assertNotNull(posted.getMessageId());
+
+        response = get("/accounts/9999/messages", "application/x-jackson-smile");
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        List<Message> messages = smileMapper.readValue(response.body(), new TypeReference<List<Message>>(){});
+        Assertions.assertEquals(2, messages.size(), "Actual=" + messages);
+        Assertions.assertTrue(messages.contains(new Message(9999, 9999, "test message 1", 1669947792L)), "Actual=" + messages);
+        Assertions.assertTrue(messages.contains(posted), "Actual=" + messages);
+    }
+}
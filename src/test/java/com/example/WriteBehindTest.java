@@ -0,0 +1,211 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.entity.Message;
+import com.example.journal.MessageJournal;
+import com.example.journal.MessageWriteBehind;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class WriteBehindTest {
+    static final Path JOURNAL = Path.of("target", "write-behind-test.journal");
+    static final Path DEAD_LETTERS = Path.of("target", "write-behind-test.dead-letters");
+    static final Path RING = Path.of("target", "write-behind-test.ring");
+
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, leave one acknowledged message in a new journal, restart the
+     * app with write-behind, and create a new webClient and ObjectMapper for interacting locally on the web.
+     * @throws InterruptedException
+     * @throws IOException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException, IOException {
+        Files.createDirectories(JOURNAL.getParent());
+        Files.deleteIfExists(JOURNAL);
+        Files.deleteIfExists(DEAD_LETTERS);
+        try (MessageJournal journal = new MessageJournal(JOURNAL, 1 << 20, false)) {
+            journal.append(new Message(5000, 9998, "journaled before a crash", 1669947792L));
+        }
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] { "--app.write-behind.enabled=true", "--app.write-behind.journal-file=" + JOURNAL,
+                "--app.write-behind.dead-letter-file=" + DEAD_LETTERS, "--app.write-behind.max-retries=2",
+                "--app.write-behind.await-timeout-ms=500" };
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return webClient.send(request.header("Content-Type", "application/json").build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Sending http requests to POST localhost:8080/messages, then GET the message, the account's messages,
+     * PATCH and DELETE it
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the acknowledged message is visible to every read and can be patched and deleted
+     */
+    @Test
+    public void acknowledgedMessageIsReadable() throws IOException, InterruptedException {
+        HttpResponse<String> response = send(HttpRequest.newBuilder(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"postedBy\":9999,\"messageText\": \"written behind\",\"timePostedEpoch\": 1669947800}")));
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        Message posted = objectMapper.readValue(response.body().toString(), Message.class);
+        Assertions.assertNotNull(posted.getMessageId());
+
+        response = send(HttpRequest.newBuilder(URI.create("http://localhost:8080/messages/" + posted.getMessageId())));
+        Assertions.assertEquals(posted, objectMapper.readValue(response.body().toString(), Message.class));
+        response = send(HttpRequest.newBuilder(URI.create("http://localhost:8080/accounts/9999/messages")));
+        List<Message> timeline = objectMapper.readValue(response.body().toString(), new TypeReference<List<Message>>(){});
+        Assertions.assertTrue(timeline.contains(posted), "Actual="+timeline);
+
+        response = send(HttpRequest.newBuilder(URI.create("http://localhost:8080/messages/" + posted.getMessageId()))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\": \"patched\"}")));
+        Assertions.assertEquals("1", response.body().toString());
+        response = send(HttpRequest.newBuilder(URI.create("http://localhost:8080/messages/" + posted.getMessageId()))
+                .DELETE());
+        Assertions.assertEquals("1", response.body().toString());
+    }
+
+    /**
+     * Sending http requests to POST localhost:8080/messages without a timePostedEpoch, then GET the message
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the message with a null timePostedEpoch, before and after it is flushed
+     */
+    @Test
+    public void messageWithoutTimeIsWrittenBehind() throws IOException, InterruptedException {
+        HttpResponse<String> response = send(HttpRequest.newBuilder(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"postedBy\":9999,\"messageText\": \"no time\"}")));
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        Message posted = objectMapper.readValue(response.body().toString(), Message.class);
+        Assertions.assertNull(posted.getTimePostedEpoch());
+
+        MessageWriteBehind writeBehind = app.getBean(MessageWriteBehind.class);
+        for (int i = 0; i < 100 && writeBehind.hasPending(); i++) {
+            Thread.sleep(100);
+        }
+        response = send(HttpRequest.newBuilder(URI.create("http://localhost:8080/messages/" + posted.getMessageId())));
+        Assertions.assertEquals(posted, objectMapper.readValue(response.body().toString(), Message.class));
+    }
+
+    /**
+     * Appends to a small journal far past its capacity, checkpointing behind the appends, then reopens it
+     *
+     * Expected Response:
+     *  every append finds room once the space before it is checkpointed, nullable fields survive the wraps and
+     *  a reopened journal replays exactly the records after its checkpoint
+     */
+    @Test
+    public void journalReusesCheckpointedSpace() throws IOException {
+        Files.deleteIfExists(RING);
+        long checkpoint;
+        try (MessageJournal journal = new MessageJournal(RING, 1000, false)) {
+            for (int i = 0; i < 200; i++) {
+                long end = journal.append(new Message(i, i % 2 == 0 ? null : 9999, "message " + i, null));
+                Assertions.assertTrue(end >= 0, "Journal full at append " + i);
+                if (i % 5 == 4) {
+                    journal.checkpoint(end);
+                }
+            }
+            checkpoint = journal.append(new Message(200, 9999, null, 1669947800L));
+            Assertions.assertTrue(journal.append(new Message(201, 9999, "x".repeat(1000), null)) < 0);
+            journal.append(new Message(202, 9998, "after the checkpoint", 1669947801L));
+            journal.checkpoint(checkpoint);
+        }
+        List<Message> replayed = new ArrayList<>();
+        try (MessageJournal journal = new MessageJournal(RING, 1000, false)) {
+            journal.replay(replayed::add);
+        }
+        Assertions.assertEquals(List.of(new Message(202, 9998, "after the checkpoint", 1669947801L)), replayed);
+        Files.deleteIfExists(RING);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/5000 and GET localhost:8080/messages after
+     * starting with a journal that holds message 5000
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the journaled message, replayed into the database on startup
+     */
+    @Test
+    public void journalIsReplayedOnStartup() throws IOException, InterruptedException {
+        Message expected = new Message(5000, 9998, "journaled before a crash", 1669947792L);
+        HttpResponse<String> response = send(HttpRequest.newBuilder(URI.create("http://localhost:8080/messages/5000")));
+        Assertions.assertEquals(expected, objectMapper.readValue(response.body().toString(), Message.class));
+        response = send(HttpRequest.newBuilder(URI.create("http://localhost:8080/messages")));
+        List<Message> messages = objectMapper.readValue(response.body().toString(), new TypeReference<List<Message>>(){});
+        Assertions.assertTrue(messages.contains(expected), "Actual="+messages);
+    }
+
+    /**
+     * Journals a message too long for its column, then sends http requests to PATCH it, GET localhost:8080/messages,
+     * POST localhost:8080/messages and, once the journal is flushed, GET the journaled message
+     *
+     * Expected Response:
+     *  Status Code: 503 for the PATCH while the message is retried, 200 otherwise
+     *  Response Body: lists are served from committed rows meanwhile, the message is moved to the dead-letter
+     *  journal after its retries and the queue goes on with the messages behind it
+     */
+    @Test
+    public void failingMessageIsDeadLettered() throws IOException, InterruptedException {
+        MessageWriteBehind writeBehind = app.getBean(MessageWriteBehind.class);
+        Message failing = writeBehind.write(new Message(9999, "x".repeat(300), 1669947800L));
+        HttpResponse<String> response = send(HttpRequest.newBuilder(URI.create("http://localhost:8080/messages/" + failing.getMessageId()))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\": \"patched\"}")));
+        Assertions.assertEquals(503, response.statusCode(), "Expected Status Code 503 - Actual Code was: " + response.statusCode());
+        response = send(HttpRequest.newBuilder(URI.create("http://localhost:8080/messages")));
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        Assertions.assertFalse(objectMapper.readValue(response.body().toString(), new TypeReference<List<Message>>(){})
+                .contains(failing));
+
+        response = send(HttpRequest.newBuilder(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"postedBy\":9999,\"messageText\": \"behind the failing one\",\"timePostedEpoch\": 1669947801}")));
+        Message posted = objectMapper.readValue(response.body().toString(), Message.class);
+        for (int i = 0; i < 100 && writeBehind.hasPending(); i++) {
+            Thread.sleep(100);
+        }
+        Assertions.assertFalse(writeBehind.hasPending());
+
+        response = send(HttpRequest.newBuilder(URI.create("http://localhost:8080/messages/" + failing.getMessageId())));
+        Assertions.assertTrue(response.body().toString().isEmpty(), "Actual=" + response.body());
+        response = send(HttpRequest.newBuilder(URI.create("http://localhost:8080/accounts/9999/messages")));
+        List<Message> timeline = objectMapper.readValue(response.body().toString(), new TypeReference<List<Message>>(){});
+        Assertions.assertTrue(timeline.contains(posted), "Actual="+timeline);
+        response = send(HttpRequest.newBuilder(URI.create("http://localhost:8080/actuator/prometheus")));
+        Assertions.assertTrue(response.body().contains("write_behind_dead_lettered_total 1.0"));
+    }
+}